@@ -0,0 +1,73 @@
+package com.JavaWebToken.jwtAuthentication.benchmark;
+
+import com.JavaWebToken.jwtAuthentication.dto.CellMappingDTO;
+import com.JavaWebToken.jwtAuthentication.service.CoaSqlCompiler;
+import com.JavaWebToken.jwtAuthentication.service.CompiledCoaSql;
+import com.JavaWebToken.jwtAuthentication.service.ExcelReportService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQL side of report generation: compiling and binding COA scripts, and computing a sheet's values,
+ * which covers planning, fusion and dispatch of the statements to the query pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CoaQueryBenchmark {
+
+    private static final String SHEET = "Bench Sheet";
+
+    @Param({"100", "1000", "10000"})
+    public int cells;
+
+    private ReportBenchmarkFixture fixture;
+    private ExcelReportService reportService;
+    private CoaSqlCompiler sqlCompiler;
+    private List<CellMappingDTO> mappings;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = new ReportBenchmarkFixture();
+        fixture.seedSheet(SHEET, cells);
+        reportService = fixture.bean(ExcelReportService.class);
+        sqlCompiler = fixture.bean(CoaSqlCompiler.class);
+        mappings = reportService.getMappingsForSheet(SHEET);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fixture.close();
+    }
+
+    // What every cell paid before compiled scripts were cached per COA version
+    @Benchmark
+    public void compileScripts(Blackhole blackhole) {
+        for (CellMappingDTO mapping : mappings) {
+            CompiledCoaSql compiled = sqlCompiler.compile(mapping.getSqlScript(), mapping.getCoaVersion(), null);
+            blackhole.consume(compiled.bind(ReportBenchmarkFixture.START_DATE, ReportBenchmarkFixture.END_DATE));
+        }
+    }
+
+    @Benchmark
+    public void compileScriptsCached(Blackhole blackhole) {
+        for (CellMappingDTO mapping : mappings) {
+            CompiledCoaSql compiled = sqlCompiler.compile(mapping);
+            blackhole.consume(compiled.bind(ReportBenchmarkFixture.START_DATE, ReportBenchmarkFixture.END_DATE));
+        }
+    }
+
+    // The report data cache is disabled by the fixture, so every invocation runs the statements
+    @Benchmark
+    public Map<String, Object> generateReportData() {
+        return reportService.generateReportData(SHEET, ReportBenchmarkFixture.START_DATE, ReportBenchmarkFixture.END_DATE);
+    }
+}
@@ -0,0 +1,68 @@
+package com.JavaWebToken.jwtAuthentication.benchmark;
+
+import com.JavaWebToken.jwtAuthentication.service.ExcelReportService;
+import com.JavaWebToken.jwtAuthentication.service.PreparedExcelReport;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Workbook side of report generation: opening the cached template, filling the target cells and
+ * serializing the result, for XLSX and XLS templates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ExcelFillBenchmark {
+
+    private static final String SHEET = "Bench Template";
+
+    @Param({"100", "1000", "10000"})
+    public int cells;
+
+    @Param({"xlsx", "xls"})
+    public String format;
+
+    private ReportBenchmarkFixture fixture;
+    private ExcelReportService reportService;
+    private PreparedExcelReport report;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = new ReportBenchmarkFixture();
+        List<String> refs = fixture.seedSheet(SHEET, cells);
+        File template = fixture.writeTemplate(SHEET, format, refs);
+        reportService = fixture.bean(ExcelReportService.class);
+
+        // Mostly amounts, some large enough to pick up the number format, and a few failed cells
+        SplittableRandom random = new SplittableRandom(42);
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String ref : refs) {
+            values.put(ref, random.nextInt(50) == 0
+                    ? "ERROR: benchmark"
+                    : BigDecimal.valueOf(random.nextLong(10_000_000), 2));
+        }
+        report = new PreparedExcelReport(SHEET, template, values);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fixture.close();
+    }
+
+    @Benchmark
+    public void writeExcelReport() throws IOException {
+        reportService.writeExcelReport(report, OutputStream.nullOutputStream());
+    }
+}
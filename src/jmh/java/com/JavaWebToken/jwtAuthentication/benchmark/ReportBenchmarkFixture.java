@@ -0,0 +1,157 @@
+package com.JavaWebToken.jwtAuthentication.benchmark;
+
+import com.JavaWebToken.jwtAuthentication.JwtAuthenticationApplication;
+import jakarta.persistence.EntityManagerFactory;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the application against an in-memory H2 database and seeds it with a ledger and one report sheet
+ * whose cells each map to their own COA, so benchmarks exercise the same beans and SQL as production.
+ */
+final class ReportBenchmarkFixture implements AutoCloseable {
+
+    static final LocalDate START_DATE = LocalDate.of(2024, 1, 1);
+    static final LocalDate END_DATE = LocalDate.of(2024, 3, 31);
+
+    private static final int LEDGER_ROWS = 200_000;
+    private static final int ACCOUNTS = 200;
+    private static final int COLUMNS = 10;
+    private static final String[] AGGREGATES = {"SUM(amount)", "COUNT(*)", "AVG(amount)", "MAX(amount)"};
+
+    private final ConfigurableApplicationContext context;
+    private final Path uploadDir;
+
+    ReportBenchmarkFixture() throws IOException {
+        uploadDir = Files.createTempDirectory("report-bench");
+        // Passed as arguments so they take precedence over application.properties
+        context = new SpringApplicationBuilder(JwtAuthenticationApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:report-bench;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--report.cache.enabled=false",
+                        "--upload.dir=" + uploadDir,
+                        "--logging.level.root=WARN");
+        // Schema is created with the (lazily initialised) entity manager factory
+        context.getBean(EntityManagerFactory.class);
+        seedLedger();
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Creates sheet {@code name} with {@code cells} mapped cells laid out ten to a row from B2,
+     * and returns the cell references.
+     */
+    List<String> seedSheet(String name, int cells) {
+        JdbcTemplate jdbc = bean(JdbcTemplate.class);
+        long sheetId = jdbc.queryForObject("SELECT COALESCE(MAX(sheet_id), 0) + 1 FROM excel_sheets", Long.class);
+        long firstId = jdbc.queryForObject("SELECT COALESCE(MAX(coa_id), 0) + 1 FROM coa", Long.class);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbc.update("INSERT INTO excel_sheets (sheet_id, excell_sheet_name, created_date) VALUES (?, ?, ?)",
+                sheetId, name, now);
+
+        List<String> refs = cellRefs(cells);
+        List<Object[]> coas = new ArrayList<>(cells);
+        List<Object[]> elements = new ArrayList<>(cells);
+        List<Object[]> mappings = new ArrayList<>(cells);
+        for (int i = 0; i < cells; i++) {
+            long id = firstId + i;
+            String script = "SELECT " + AGGREGATES[i % AGGREGATES.length] + " FROM bench_ledger"
+                    + " WHERE account = 'ACC-" + (i % ACCOUNTS) + "' AND entry_date BETWEEN :startDate AND :endDate";
+            coas.add(new Object[]{id, "B" + id, "Bench COA " + id, script, false, now});
+            elements.add(new Object[]{id, "Element " + id, refs.get(i), refs.get(i), sheetId});
+            mappings.add(new Object[]{id, sheetId, id, id, now});
+        }
+        jdbc.batchUpdate("INSERT INTO coa (coa_id, coa_code, coa_name, sql_script, archived, created_date)"
+                + " VALUES (?, ?, ?, ?, ?, ?)", coas);
+        jdbc.batchUpdate("INSERT INTO excel_elements (element_id, excel_element, exel_cell_value, cell_reference, sheet_id)"
+                + " VALUES (?, ?, ?, ?, ?)", elements);
+        jdbc.batchUpdate("INSERT INTO mapped_cell_info (mapping_id, sheet_id, element_id, coa_id, created_date)"
+                + " VALUES (?, ?, ?, ?, ?)", mappings);
+        return refs;
+    }
+
+    /**
+     * Writes a template for {@code name} whose target cells sit under a header row and registers it
+     * the way uploads are, so report generation finds it by sheet name.
+     */
+    File writeTemplate(String name, String format, List<String> refs) throws IOException {
+        File file = uploadDir.resolve(name + "." + format).toFile();
+        try (Workbook workbook = "xls".equals(format) ? new HSSFWorkbook() : new XSSFWorkbook();
+             OutputStream out = Files.newOutputStream(file.toPath())) {
+            Sheet sheet = workbook.createSheet(name);
+            Row header = sheet.createRow(0);
+            for (int col = 0; col <= COLUMNS; col++) {
+                header.createCell(col).setCellValue(col == 0 ? "Line" : "Column " + col);
+            }
+            for (String ref : refs) {
+                CellReference cell = new CellReference(ref);
+                Row row = sheet.getRow(cell.getRow());
+                if (row == null) {
+                    row = sheet.createRow(cell.getRow());
+                    row.createCell(0).setCellValue("Line " + cell.getRow());
+                }
+                row.createCell(cell.getCol()).setBlank();
+            }
+            workbook.write(out);
+        }
+
+        JdbcTemplate jdbc = bean(JdbcTemplate.class);
+        jdbc.update("INSERT INTO excel_downloads (file_name, file_path, download_date, is_workbook) VALUES (?, ?, ?, ?)",
+                name, file.getAbsolutePath(), Timestamp.valueOf(LocalDateTime.now()), true);
+        return file;
+    }
+
+    private void seedLedger() {
+        JdbcTemplate jdbc = bean(JdbcTemplate.class);
+        jdbc.execute("CREATE TABLE bench_ledger (entry_date DATE NOT NULL, account VARCHAR(16) NOT NULL,"
+                + " amount DECIMAL(18, 2) NOT NULL)");
+        jdbc.execute("INSERT INTO bench_ledger SELECT DATEADD('DAY', MOD(X, 366), DATE '2024-01-01'),"
+                + " CONCAT('ACC-', MOD(X, " + ACCOUNTS + ")), MOD(X * 7919, 1000000) / 100.0"
+                + " FROM SYSTEM_RANGE(1, " + LEDGER_ROWS + ")");
+        jdbc.execute("CREATE INDEX idx_bench_ledger_account_date ON bench_ledger (account, entry_date)");
+    }
+
+    private static List<String> cellRefs(int cells) {
+        List<String> refs = new ArrayList<>(cells);
+        for (int i = 0; i < cells; i++) {
+            refs.add(new CellReference(1 + i / COLUMNS, 1 + i % COLUMNS).formatAsString());
+        }
+        return refs;
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        try (var files = Files.walk(uploadDir)) {
+            files.sorted((a, b) -> b.getNameCount() - a.getNameCount()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
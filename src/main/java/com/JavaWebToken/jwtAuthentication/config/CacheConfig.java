@@ -0,0 +1,35 @@
+package com.JavaWebToken.jwtAuthentication.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String REPORT_DATA_CACHE = "reportData";
+
+    // reportData expires after report.cache.ttl-minutes rather than the shared spec. It records stats so
+    // Boot's cache metrics binder, which covers every cache the manager knows, publishes its cache.* meters
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> reportDataCacheCustomizer(
+            @Value("${report.cache.ttl-minutes:30}") long ttlMinutes,
+            @Value("${report.cache.max-entries:500}") long maxEntries) {
+        return cacheManager -> {
+            Cache<Object, Object> cache = Caffeine.newBuilder()
+                    .maximumSize(maxEntries)
+                    .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                    .recordStats()
+                    .build();
+            cacheManager.registerCustomCache(REPORT_DATA_CACHE, cache);
+        };
+    }
+}
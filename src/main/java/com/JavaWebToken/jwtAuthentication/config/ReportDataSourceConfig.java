@@ -0,0 +1,70 @@
+package com.JavaWebToken.jwtAuthentication.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Two connection pools: the primary one (spring.datasource.*) for JPA, mappings, COA saves and logins,
+ * and a read-only one (report.datasource.*) that only runs COA scripts, so a heavy report cannot take
+ * every connection interactive requests need. The report pool uses the primary database unless
+ * report.datasource.url points it at a read replica.
+ */
+@Configuration
+public class ReportDataSourceConfig {
+
+    // Declaring a second DataSource turns off Boot's own, so the primary one is declared here as Boot would
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties dataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    // Declaring reportJdbcTemplate turns off Boot's JdbcTemplate too; unqualified injections keep the primary pool
+    @Bean
+    @Primary
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+
+    // Pool settings come from report.datasource.hikari.*; connections are always read-only
+    @Bean(name = "reportDataSource")
+    @ConfigurationProperties("report.datasource.hikari")
+    public HikariDataSource reportDataSource(DataSourceProperties properties,
+                                             @Value("${report.datasource.url:}") String url,
+                                             @Value("${report.datasource.username:}") String username,
+                                             @Value("${report.datasource.password:}") String password) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        if (!url.isBlank()) {
+            dataSource.setJdbcUrl(url);
+        }
+        if (!username.isBlank()) {
+            dataSource.setUsername(username);
+            dataSource.setPassword(password);
+        }
+        dataSource.setPoolName("report-pool");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean(name = "reportJdbcTemplate")
+    public JdbcTemplate reportJdbcTemplate(@Qualifier("reportDataSource") DataSource reportDataSource) {
+        return new JdbcTemplate(reportDataSource);
+    }
+}
@@ -0,0 +1,34 @@
+package com.JavaWebToken.jwtAuthentication.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class ReportExecutorConfig {
+
+    // Runs COA scripts for report generation. Every worker holds a pooled connection while
+    // its query runs, so keep report.sql.parallelism below the report pool's maximum-pool-size.
+    @Bean(name = "reportQueryExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService reportQueryExecutor(@Value("${report.sql.parallelism:4}") int parallelism) {
+        return Executors.newFixedThreadPool(Math.max(1, parallelism),
+                Thread.ofPlatform().name("report-sql-", 0).daemon(true).factory());
+    }
+
+    // Runs queued report jobs; its size, not HTTP timeouts, bounds how many large reports run at once
+    @Bean(name = "reportJobExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService reportJobExecutor(@Value("${report.jobs.worker-threads:2}") int workerThreads) {
+        return Executors.newFixedThreadPool(Math.max(1, workerThreads),
+                Thread.ofPlatform().name("report-job-", 0).daemon(true).factory());
+    }
+
+    // Persists frozen COA values of closed periods off the query workers. One thread is enough for the
+    // occasional first report over a closed period, and queued values are still written on shutdown.
+    @Bean(name = "periodFreezeExecutor", destroyMethod = "shutdown")
+    public ExecutorService periodFreezeExecutor() {
+        return Executors.newSingleThreadExecutor(Thread.ofPlatform().name("period-freeze-", 0).daemon(true).factory());
+    }
+}
@@ -2,10 +2,12 @@ package com.JavaWebToken.jwtAuthentication.controller;
 
 import com.JavaWebToken.jwtAuthentication.dto.*;
 import com.JavaWebToken.jwtAuthentication.entity.Coa;
+import com.JavaWebToken.jwtAuthentication.service.CoaFormulaException;
 import com.JavaWebToken.jwtAuthentication.service.CoaService;
 import com.JavaWebToken.jwtAuthentication.service.CoaVersionService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
@@ -28,21 +30,31 @@ public class CoaController {
 
     private final CoaService coaService;
     private final CoaVersionService coaVersionService;
+    // Read-only report pool: a script under test cannot write and cannot starve interactive requests
+    @Qualifier("reportDataSource")
     private final DataSource dataSource;
 
     // ------------------ CRUD ------------------
 
     @PostMapping
-    public ResponseEntity<CoaDTO> create(@Valid @RequestBody CoaCreateDTO createDTO) {
+    public ResponseEntity<?> create(@Valid @RequestBody CoaCreateDTO createDTO) {
         Coa coa = Coa.builder()
                 .coaCode(createDTO.getCoaCode())
                 .coaName(createDTO.getCoaName())
                 .description(createDTO.getDescription())
                 .sqlScript(createDTO.getSqlScript())
+                .rowReducer(createDTO.getRowReducer())
+                .rollupAccount(createDTO.getRollupAccount())
+                .formula(createDTO.getFormula())
                 .createdBy(createDTO.getCreatedBy() != null ? createDTO.getCreatedBy() : "system")
                 .build();
 
-        Coa saved = coaService.createCoa(coa);
+        Coa saved;
+        try {
+            saved = coaService.createCoa(coa);
+        } catch (CoaFormulaException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
         return ResponseEntity.ok(CoaDTO.fromEntity(saved));
     }
 
@@ -65,7 +77,7 @@ public class CoaController {
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<CoaDTO> update(
+    public ResponseEntity<?> update(
             @PathVariable("id") Long id,
             @Valid @RequestBody CoaUpdateDTO updateDTO) {
 
@@ -74,12 +86,17 @@ public class CoaController {
                 .coaName(updateDTO.getCoaName())
                 .description(updateDTO.getDescription())
                 .sqlScript(updateDTO.getSqlScript())
+                .rowReducer(updateDTO.getRowReducer())
+                .rollupAccount(updateDTO.getRollupAccount())
+                .formula(updateDTO.getFormula())
                 .modifiedBy(updateDTO.getModifiedBy() != null ? updateDTO.getModifiedBy() : "system")
                 .build();
 
         Coa saved;
         try {
             saved = coaService.updateCoa(id, updated);
+        } catch (CoaFormulaException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (IllegalArgumentException e) {
             return ResponseEntity.notFound().build();
         }
@@ -90,7 +107,7 @@ public class CoaController {
     // ------------------ Archive/Restore ------------------
 
     @PostMapping("/{id}/archive")
-    public ResponseEntity<CoaDTO> archive(
+    public ResponseEntity<?> archive(
             @PathVariable("id") Long id,
             @Valid @RequestBody CoaArchiveDTO archiveDTO) {
 
@@ -101,6 +118,8 @@ public class CoaController {
 
             Coa archived = coaService.archiveCoa(id, archiveDTO.getArchivedBy());
             return ResponseEntity.ok(CoaDTO.fromEntity(archived));
+        } catch (CoaFormulaException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (IllegalArgumentException e) {
             return ResponseEntity.notFound().build();
         }
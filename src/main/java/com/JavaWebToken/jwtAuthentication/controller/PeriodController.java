@@ -0,0 +1,58 @@
+package com.JavaWebToken.jwtAuthentication.controller;
+
+import com.JavaWebToken.jwtAuthentication.dto.ClosedPeriodDTO;
+import com.JavaWebToken.jwtAuthentication.dto.PeriodCloseDTO;
+import com.JavaWebToken.jwtAuthentication.entity.ClosedPeriod;
+import com.JavaWebToken.jwtAuthentication.service.PeriodFreezeService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/admin/periods")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Closed Periods", description = "Close and re-open accounting periods")
+public class PeriodController {
+
+    private final PeriodFreezeService freezeService;
+
+    @GetMapping
+    @Operation(summary = "List closed periods")
+    public ResponseEntity<List<ClosedPeriodDTO>> list() {
+        List<ClosedPeriodDTO> periods = freezeService.listClosedPeriods().stream()
+                .map(ClosedPeriodDTO::fromEntity)
+                .toList();
+        return ResponseEntity.ok(periods);
+    }
+
+    @PostMapping("/close")
+    @Operation(summary = "Close a period; its COA values are frozen on first computation")
+    public ResponseEntity<ClosedPeriodDTO> close(@Valid @RequestBody PeriodCloseDTO request) {
+        try {
+            ClosedPeriod period = freezeService.closePeriod(
+                    request.getStartDate(), request.getEndDate(), request.getClosedBy());
+            return ResponseEntity.ok(ClosedPeriodDTO.fromEntity(period));
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid period close request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/{id}/reopen")
+    @Operation(summary = "Re-open a closed period and discard its frozen values")
+    public ResponseEntity<ClosedPeriodDTO> reopen(@PathVariable("id") Long id) {
+        try {
+            ClosedPeriod period = freezeService.reopenPeriod(id);
+            return ResponseEntity.ok(ClosedPeriodDTO.fromEntity(period));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
@@ -1,16 +1,28 @@
 package com.JavaWebToken.jwtAuthentication.controller;
 
 import com.JavaWebToken.jwtAuthentication.dto.CellMappingDTO;
+import com.JavaWebToken.jwtAuthentication.dto.CoaProfileDTO;
+import com.JavaWebToken.jwtAuthentication.dto.ReportExportRequestDTO;
+import com.JavaWebToken.jwtAuthentication.dto.ReportPackRequestDTO;
 import com.JavaWebToken.jwtAuthentication.dto.ReportRequestDTO;
+import com.JavaWebToken.jwtAuthentication.dto.ReportSeriesDTO;
+import com.JavaWebToken.jwtAuthentication.dto.ReportSeriesRequestDTO;
+import com.JavaWebToken.jwtAuthentication.service.CoaQueryProfiler;
 import com.JavaWebToken.jwtAuthentication.service.ExcelReportService;
+import com.JavaWebToken.jwtAuthentication.service.NdjsonPreviewWriter;
+import com.JavaWebToken.jwtAuthentication.service.PreparedExcelPack;
+import com.JavaWebToken.jwtAuthentication.service.PreparedExcelReport;
+import com.JavaWebToken.jwtAuthentication.service.PreparedSeriesReport;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.time.LocalDate;
@@ -27,6 +39,8 @@ import java.util.Map;
 public class ReportController {
 
     private final ExcelReportService excelReportService;
+    private final CoaQueryProfiler queryProfiler;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/health")
     @Operation(summary = "Health check")
@@ -131,9 +145,32 @@ public class ReportController {
         }
     }
 
+    @PostMapping(value = "/preview-stream/{sheetName}", produces = "application/x-ndjson")
+    @Operation(summary = "Preview report data as newline-delimited JSON, one record per cell as it completes")
+    public ResponseEntity<StreamingResponseBody> streamPreview(
+            @PathVariable String sheetName,
+            @RequestBody ReportRequestDTO request) {
+
+        if (request.getStartDate() == null || request.getEndDate() == null
+                || request.getStartDate().isAfter(request.getEndDate())) {
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("Streaming preview for sheet: {}, dates: {} to {}",
+                sheetName, request.getStartDate(), request.getEndDate());
+
+        StreamingResponseBody body = out -> {
+            NdjsonPreviewWriter writer = new NdjsonPreviewWriter(objectMapper, sheetName);
+            writer.stream(out, () -> excelReportService.generateReportData(
+                    sheetName, request.getStartDate(), request.getEndDate(), writer));
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
     @PostMapping("/generate/{sheetName}")
     @Operation(summary = "Generate and download Excel report")
-    public ResponseEntity<Resource> generateExcelReport(
+    public ResponseEntity<StreamingResponseBody> generateExcelReport(
             @PathVariable String sheetName,
             @RequestParam String startDate,
             @RequestParam String endDate) {
@@ -149,23 +186,15 @@ public class ReportController {
                 return ResponseEntity.badRequest().body(null);
             }
 
-            byte[] excelData = excelReportService.generateExcelReport(sheetName, start, end);
+            PreparedExcelReport report = excelReportService.prepareExcelReport(sheetName, start, end);
 
             // Create download filename with the exact sheet name
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
             String filename = String.format("%s_%s_to_%s.xlsx",
                     sheetName.replace(".xls", "").replace(".xlsx", ""),
                     start.format(DateTimeFormatter.ofPattern("yyyyMMdd")),
                     end.format(DateTimeFormatter.ofPattern("yyyyMMdd")));
 
-            ByteArrayResource resource = new ByteArrayResource(excelData);
-
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment; filename=\"" + filename + "\"")
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .contentLength(excelData.length)
-                    .body(resource);
+            return streamReport(report, filename);
 
         } catch (IOException e) {
             log.error("Excel file error for {}: {}", sheetName, e.getMessage(), e);
@@ -183,41 +212,188 @@ public class ReportController {
 
     @PostMapping("/generate")
     @Operation(summary = "Generate Excel report with JSON body")
-    public ResponseEntity<Resource> generateExcelReportJson(@RequestBody ReportRequestDTO request) {
+    public ResponseEntity<StreamingResponseBody> generateExcelReportJson(@RequestBody ReportRequestDTO request) {
         try {
             log.info("Generating report via JSON: {}, dates: {} to {}",
                     request.getSheetName(), request.getStartDate(), request.getEndDate());
 
-            byte[] excelData = excelReportService.generateExcelReport(
+            PreparedExcelReport report = excelReportService.prepareExcelReport(
                     request.getSheetName(),
                     request.getStartDate(),
                     request.getEndDate()
             );
 
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
             String filename = String.format("%s_%s_to_%s.xlsx",
                     request.getSheetName().replace(".xls", "").replace(".xlsx", ""),
                     request.getStartDate().format(DateTimeFormatter.ofPattern("yyyyMMdd")),
                     request.getEndDate().format(DateTimeFormatter.ofPattern("yyyyMMdd")));
 
-            ByteArrayResource resource = new ByteArrayResource(excelData);
+            return streamReport(report, filename);
+
+        } catch (IOException e) {
+            log.error("Excel file error: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        } catch (Exception e) {
+            log.error("Error generating report: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    @PostMapping("/generate-pack")
+    @Operation(summary = "Generate several sheets into one workbook for the same period")
+    public ResponseEntity<StreamingResponseBody> generateExcelPack(@RequestBody ReportPackRequestDTO request) {
+        try {
+            log.info("Generating report pack for sheets: {}, dates: {} to {}",
+                    request.getSheetNames(), request.getStartDate(), request.getEndDate());
+
+            if (request.getStartDate() == null || request.getEndDate() == null
+                    || request.getStartDate().isAfter(request.getEndDate())) {
+                return ResponseEntity.badRequest().body(null);
+            }
+
+            PreparedExcelPack pack = excelReportService.prepareExcelPack(
+                    request.getTemplateName(),
+                    request.getSheetNames(),
+                    request.getStartDate(),
+                    request.getEndDate()
+            );
+
+            String templateName = pack.template().getName();
+            String filename = String.format("%s_pack_%s_to_%s%s",
+                    templateName.replace(".xlsx", "").replace(".xls", ""),
+                    request.getStartDate().format(DateTimeFormatter.ofPattern("yyyyMMdd")),
+                    request.getEndDate().format(DateTimeFormatter.ofPattern("yyyyMMdd")),
+                    templateName.toLowerCase().endsWith(".xls") ? ".xls" : ".xlsx");
 
+            StreamingResponseBody body = out -> excelReportService.writeExcelPack(pack, out);
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION,
                             "attachment; filename=\"" + filename + "\"")
                     .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .contentLength(excelData.length)
-                    .body(resource);
+                    .body(body);
 
         } catch (IOException e) {
-            log.error("Excel file error: {}", e.getMessage(), e);
+            log.error("Excel file error for pack: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid pack request: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest().body(null);
         } catch (Exception e) {
-            log.error("Error generating report: {}", e.getMessage(), e);
+            log.error("Error generating report pack: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
 
+    @PostMapping("/export")
+    @Operation(summary = "Download the reports of all (or the listed) sheets for one period as a ZIP archive")
+    public ResponseEntity<StreamingResponseBody> exportReports(@RequestBody ReportExportRequestDTO request) {
+        try {
+            if (request.getStartDate() == null || request.getEndDate() == null
+                    || request.getStartDate().isAfter(request.getEndDate())) {
+                return ResponseEntity.badRequest().body(null);
+            }
+
+            List<String> sheets = excelReportService.resolveExportSheets(request.getSheetNames());
+            if (sheets.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            log.info("Exporting {} sheets, dates: {} to {}", sheets.size(), request.getStartDate(), request.getEndDate());
+
+            String filename = String.format("reports_%s_to_%s.zip",
+                    request.getStartDate().format(DateTimeFormatter.ofPattern("yyyyMMdd")),
+                    request.getEndDate().format(DateTimeFormatter.ofPattern("yyyyMMdd")));
+
+            StreamingResponseBody body = out -> excelReportService.writeReportArchive(
+                    sheets, request.getStartDate(), request.getEndDate(), out);
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                    .contentType(MediaType.parseMediaType("application/zip"))
+                    .body(body);
+
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid export request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(null);
+        } catch (Exception e) {
+            log.error("Error starting export: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    @GetMapping("/profile")
+    @Operation(summary = "Slowest COA scripts by p50, p99, max or total time")
+    public ResponseEntity<List<CoaProfileDTO>> getProfile(@RequestParam(defaultValue = "20") int limit,
+                                                          @RequestParam(defaultValue = "p99") String sortBy) {
+        try {
+            return ResponseEntity.ok(queryProfiler.top(limit, sortBy));
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid profile request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/series")
+    @Operation(summary = "Preview report data for several periods")
+    public ResponseEntity<ReportSeriesDTO> previewSeries(@RequestBody ReportSeriesRequestDTO request) {
+        try {
+            log.info("Series preview for sheet: {}, {} periods", request.getSheetName(),
+                    request.getPeriods() != null ? request.getPeriods().size() : 0);
+
+            ReportSeriesDTO series = excelReportService.generateSeriesData(request.getSheetName(), request.getPeriods());
+            return ResponseEntity.ok(series);
+
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid series request for {}: {}", request.getSheetName(), e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error generating series for sheet {}: {}", request.getSheetName(), e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @PostMapping("/generate-series")
+    @Operation(summary = "Generate Excel report with one column per period")
+    public ResponseEntity<StreamingResponseBody> generateSeriesReport(@RequestBody ReportSeriesRequestDTO request) {
+        try {
+            log.info("Generating series report for sheet: {}", request.getSheetName());
+
+            PreparedSeriesReport report = excelReportService.prepareSeriesReport(
+                    request.getSheetName(), request.getPeriods());
+
+            String filename = String.format("%s_series_%d_periods%s",
+                    request.getSheetName().replace(".xlsx", "").replace(".xls", ""),
+                    request.getPeriods().size(),
+                    report.template().getName().toLowerCase().endsWith(".xls") ? ".xls" : ".xlsx");
+
+            StreamingResponseBody body = out -> excelReportService.writeSeriesReport(report, out);
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            "attachment; filename=\"" + filename + "\"")
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .body(body);
+
+        } catch (IOException e) {
+            log.error("Excel file error for {}: {}", request.getSheetName(), e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid series request for {}: {}", request.getSheetName(), e.getMessage());
+            return ResponseEntity.badRequest().body(null);
+        } catch (Exception e) {
+            log.error("Error generating series report for {}: {}", request.getSheetName(), e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    // The workbook is written straight to the response; its size is unknown up front so no Content-Length
+    private ResponseEntity<StreamingResponseBody> streamReport(PreparedExcelReport report, String filename) {
+        StreamingResponseBody body = out -> excelReportService.writeExcelReport(report, out);
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + filename + "\"")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(body);
+    }
+
     @GetMapping("/file/{sheetId}")
     @Operation(summary = "Get Excel file by sheet ID")
     public ResponseEntity<Resource> getExcelFileBySheetId(@PathVariable Long sheetId) {
@@ -228,14 +404,13 @@ public class ReportController {
                 return ResponseEntity.notFound().build();
             }
 
-            byte[] fileContent = java.nio.file.Files.readAllBytes(excelFile.toPath());
-            ByteArrayResource resource = new ByteArrayResource(fileContent);
+            FileSystemResource resource = new FileSystemResource(excelFile);
 
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION,
                             "attachment; filename=\"" + excelFile.getName() + "\"")
                     .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .contentLength(fileContent.length)
+                    .contentLength(excelFile.length())
                     .body(resource);
 
         } catch (Exception e) {
@@ -0,0 +1,88 @@
+package com.JavaWebToken.jwtAuthentication.controller;
+
+import com.JavaWebToken.jwtAuthentication.dto.ReportJobDTO;
+import com.JavaWebToken.jwtAuthentication.dto.ReportRequestDTO;
+import com.JavaWebToken.jwtAuthentication.entity.ReportJob;
+import com.JavaWebToken.jwtAuthentication.service.ReportJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.File;
+import java.security.Principal;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/reports/jobs")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Excel Report Jobs", description = "Asynchronous Excel report generation")
+public class ReportJobController {
+
+    private final ReportJobService reportJobService;
+
+    @PostMapping
+    @Operation(summary = "Queue a report for background generation")
+    public ResponseEntity<?> submitJob(@RequestBody ReportRequestDTO request, Principal principal) {
+        try {
+            ReportJob job = reportJobService.submit(
+                    request.getSheetName(),
+                    request.getStartDate(),
+                    request.getEndDate(),
+                    principal != null ? principal.getName() : null);
+
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ReportJobDTO.fromEntity(job));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error queueing report job: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping("/{jobId}")
+    @Operation(summary = "Get report job status and progress")
+    public ResponseEntity<ReportJobDTO> getJob(@PathVariable String jobId) {
+        return reportJobService.findJob(jobId)
+                .map(job -> ResponseEntity.ok(ReportJobDTO.fromEntity(job)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{jobId}/result")
+    @Operation(summary = "Download the workbook of a completed report job")
+    public ResponseEntity<?> getResult(@PathVariable String jobId) {
+        Optional<ReportJob> found = reportJobService.findJob(jobId);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        ReportJob job = found.get();
+        if (job.getStatus() != ReportJob.Status.COMPLETED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ReportJobDTO.fromEntity(job));
+        }
+
+        File result = new File(job.getResultPath());
+        if (!result.exists()) {
+            log.warn("Result file of job {} is missing: {}", jobId, job.getResultPath());
+            return ResponseEntity.status(HttpStatus.GONE).build();
+        }
+
+        Resource resource = new FileSystemResource(result);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + job.getResultFileName() + "\"")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(result.length())
+                .body(resource);
+    }
+}
@@ -0,0 +1,48 @@
+package com.JavaWebToken.jwtAuthentication.controller;
+
+import com.JavaWebToken.jwtAuthentication.entity.RollupRefreshState;
+import com.JavaWebToken.jwtAuthentication.service.LedgerRollupService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/admin/rollup")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Ledger Rollup", description = "Daily ledger rollup maintenance")
+public class RollupController {
+
+    private final LedgerRollupService rollupService;
+
+    @GetMapping
+    @Operation(summary = "Get the rollup watermark and last refresh")
+    public ResponseEntity<RollupRefreshState> getState() {
+        return rollupService.getState()
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+
+    @PostMapping("/refresh")
+    @Operation(summary = "Refresh the rollup now")
+    public ResponseEntity<RollupRefreshState> refresh() {
+        if (!rollupService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        try {
+            Optional<RollupRefreshState> state = rollupService.refresh();
+            // Empty means a scheduled refresh is already running
+            return state.map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.ACCEPTED).build());
+        } catch (Exception e) {
+            log.error("Error refreshing ledger rollup: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
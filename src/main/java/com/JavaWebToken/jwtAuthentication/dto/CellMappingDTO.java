@@ -1,5 +1,7 @@
 package com.JavaWebToken.jwtAuthentication.dto;
 
+import com.JavaWebToken.jwtAuthentication.entity.CoaRowReducer;
+import com.JavaWebToken.jwtAuthentication.entity.CoaScriptDescriptor;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -15,4 +17,14 @@ public class CellMappingDTO {
     private String sqlScript;       // sql_script: "SELECT SUM(...)"
     private Long mappingId;         // mapping_id
     private String sheetName;       // excell_sheet_name: Added this field
+    private Long coaId;             // coa_id
+    private Integer coaVersion;     // latest coa_versions.version_number, null if never versioned
+    private CoaScriptDescriptor scriptDescriptor; // stored sql_script shape, null for legacy rows
+    private CoaRowReducer rowReducer;  // row_reducer: set for detail-row scripts, null otherwise
+    private String rollupAccount;      // rollup_account: answers the COA from ledger_daily_rollup
+    private String formula;            // formula: derived COA over other COA codes, null for SQL COAs
+
+    public boolean isDerived() {
+        return formula != null && !formula.isBlank();
+    }
 }
\ No newline at end of file
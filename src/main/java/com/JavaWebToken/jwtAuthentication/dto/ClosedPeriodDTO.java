@@ -0,0 +1,26 @@
+package com.JavaWebToken.jwtAuthentication.dto;
+
+import com.JavaWebToken.jwtAuthentication.entity.ClosedPeriod;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+public class ClosedPeriodDTO {
+    private Long periodId;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private String closedBy;
+    private LocalDateTime closedAt;
+
+    public static ClosedPeriodDTO fromEntity(ClosedPeriod period) {
+        ClosedPeriodDTO dto = new ClosedPeriodDTO();
+        dto.setPeriodId(period.getPeriodId());
+        dto.setStartDate(period.getStartDate());
+        dto.setEndDate(period.getEndDate());
+        dto.setClosedBy(period.getClosedBy());
+        dto.setClosedAt(period.getClosedAt());
+        return dto;
+    }
+}
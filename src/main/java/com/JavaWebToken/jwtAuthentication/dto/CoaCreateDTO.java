@@ -1,5 +1,8 @@
 package com.JavaWebToken.jwtAuthentication.dto;
 
+import com.JavaWebToken.jwtAuthentication.entity.CoaRowReducer;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
 
@@ -13,8 +16,22 @@ public class CoaCreateDTO {
 
     private String description;
 
-    @NotBlank(message = "SQL Script is required")
     private String sqlScript;
 
+    // Derived COA: arithmetic over other COA codes, e.g. "[4000] - [5000]"; replaces the SQL script
+    private String formula;
+
+    // Optional: reduce a row-returning script with SUM, COUNT, FIRST or LAST
+    private CoaRowReducer rowReducer;
+
+    // Optional: ledger account whose daily rollup can answer this SUM/COUNT script
+    private String rollupAccount;
+
+    @JsonIgnore
+    @AssertTrue(message = "SQL Script or formula is required")
+    public boolean isScriptOrFormulaPresent() {
+        return (sqlScript != null && !sqlScript.isBlank()) || (formula != null && !formula.isBlank());
+    }
+
     private String createdBy;
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.JavaWebToken.jwtAuthentication.dto;
 
 import com.JavaWebToken.jwtAuthentication.entity.Coa;
+import com.JavaWebToken.jwtAuthentication.entity.CoaRowReducer;
 import lombok.Data;
 import java.time.LocalDateTime;
 
@@ -11,6 +12,9 @@ public class CoaDTO {
     private String coaName;
     private String description;
     private String sqlScript;
+    private CoaRowReducer rowReducer;
+    private String rollupAccount;
+    private String formula;
     private String createdBy;
 
     // Archive fields
@@ -31,6 +35,9 @@ public class CoaDTO {
         dto.setCoaName(coa.getCoaName());
         dto.setDescription(coa.getDescription());
         dto.setSqlScript(coa.getSqlScript());
+        dto.setRowReducer(coa.getRowReducer());
+        dto.setRollupAccount(coa.getRollupAccount());
+        dto.setFormula(coa.getFormula());
         dto.setCreatedBy(coa.getCreatedBy());
         dto.setArchived(coa.getArchived());
         dto.setArchivedBy(coa.getArchivedBy());
@@ -48,6 +55,9 @@ public class CoaDTO {
                 .coaName(dto.getCoaName())
                 .description(dto.getDescription())
                 .sqlScript(dto.getSqlScript())
+                .rowReducer(dto.getRowReducer())
+                .rollupAccount(dto.getRollupAccount())
+                .formula(dto.getFormula())
                 .createdBy(dto.getCreatedBy())
                 .build();
     }
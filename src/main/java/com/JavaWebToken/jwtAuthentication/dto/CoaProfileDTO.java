@@ -0,0 +1,23 @@
+package com.JavaWebToken.jwtAuthentication.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+public class CoaProfileDTO {
+    private Long coaId;
+    private String coaCode;
+    private String coaName;
+    private long executions;
+    private int sampleSize;
+    private double p50Millis;
+    private double p99Millis;
+    private double maxMillis;
+    private double totalMillis;
+    private LocalDate lastStartDate;
+    private LocalDate lastEndDate;
+    private LocalDateTime lastSeen;
+    private String explainPlan;
+}
@@ -0,0 +1,13 @@
+package com.JavaWebToken.jwtAuthentication.dto;
+
+import lombok.Data;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+public class ReportExportRequestDTO {
+    // Sheets to export; all sheets when empty
+    private List<String> sheetNames;
+    private LocalDate startDate;
+    private LocalDate endDate;
+}
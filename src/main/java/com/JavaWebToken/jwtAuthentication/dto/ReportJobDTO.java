@@ -0,0 +1,38 @@
+package com.JavaWebToken.jwtAuthentication.dto;
+
+import com.JavaWebToken.jwtAuthentication.entity.ReportJob;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+public class ReportJobDTO {
+    private String jobId;
+    private String sheetName;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private String status;
+    private Integer cellsDone;
+    private Integer cellsTotal;
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+
+    public static ReportJobDTO fromEntity(ReportJob job) {
+        ReportJobDTO dto = new ReportJobDTO();
+        dto.setJobId(job.getJobId());
+        dto.setSheetName(job.getSheetName());
+        dto.setStartDate(job.getStartDate());
+        dto.setEndDate(job.getEndDate());
+        dto.setStatus(job.getStatus().name());
+        dto.setCellsDone(job.getCellsDone());
+        dto.setCellsTotal(job.getCellsTotal());
+        dto.setErrorMessage(job.getErrorMessage());
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setStartedAt(job.getStartedAt());
+        dto.setCompletedAt(job.getCompletedAt());
+        return dto;
+    }
+}
@@ -0,0 +1,14 @@
+package com.JavaWebToken.jwtAuthentication.dto;
+
+import lombok.Data;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+public class ReportPackRequestDTO {
+    // Template holding one worksheet per pack sheet; defaults to the template of the first sheet
+    private String templateName;
+    private List<String> sheetNames;
+    private LocalDate startDate;
+    private LocalDate endDate;
+}
@@ -0,0 +1,16 @@
+package com.JavaWebToken.jwtAuthentication.dto;
+
+import lombok.Data;
+import java.time.LocalDate;
+
+@Data
+public class ReportPeriodDTO {
+    // Column header for the period, e.g. "Jan 2025"; defaults to the date range
+    private String label;
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    public String displayLabel() {
+        return label != null && !label.isBlank() ? label : startDate + " to " + endDate;
+    }
+}
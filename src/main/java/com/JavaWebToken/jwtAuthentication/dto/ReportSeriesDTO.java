@@ -0,0 +1,14 @@
+package com.JavaWebToken.jwtAuthentication.dto;
+
+import lombok.Data;
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class ReportSeriesDTO {
+    private String sheetName;
+    private List<String> periods;
+    // Target cell -> one value per period, in the order of periods
+    private Map<String, List<Object>> cellValues;
+    private int statementsPlanned;
+}
@@ -0,0 +1,10 @@
+package com.JavaWebToken.jwtAuthentication.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class ReportSeriesRequestDTO {
+    private String sheetName;
+    private List<ReportPeriodDTO> periods;
+}
@@ -0,0 +1,42 @@
+package com.JavaWebToken.jwtAuthentication.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * An accounting period that has been closed. COA values for report periods lying inside it
+ * are computed once and then served from coa_period_values.
+ */
+@Entity
+@Table(name = "closed_periods", uniqueConstraints = @UniqueConstraint(
+        name = "uk_closed_periods_range", columnNames = {"start_date", "end_date"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ClosedPeriod {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "period_id")
+    private Long periodId;
+
+    @Column(name = "start_date", nullable = false)
+    private LocalDate startDate;
+
+    @Column(name = "end_date", nullable = false)
+    private LocalDate endDate;
+
+    @Column(name = "closed_by")
+    private String closedBy;
+
+    @Column(name = "closed_at", nullable = false)
+    private LocalDateTime closedAt;
+
+    public boolean covers(LocalDate from, LocalDate to) {
+        return !from.isBefore(startDate) && !to.isAfter(endDate);
+    }
+}
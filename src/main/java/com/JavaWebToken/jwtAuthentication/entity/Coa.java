@@ -37,6 +37,23 @@ public class Coa {
     @Column(name = "sql_script", nullable = false)
     private String sqlScript;
 
+    // Filled by CoaService whenever sql_script is saved
+    @Embedded
+    private CoaScriptDescriptor scriptDescriptor;
+
+    // Set for scripts returning detail rows; they are streamed and reduced instead of read as one value
+    @Enumerated(EnumType.STRING)
+    @Column(name = "row_reducer", length = 10)
+    private CoaRowReducer rowReducer;
+
+    // Derived COA: arithmetic over other COA codes, evaluated in memory instead of running sql_script
+    @Column(name = "formula", columnDefinition = "TEXT")
+    private String formula;
+
+    // Ledger account whose daily rollup answers this COA; only for SUM/COUNT scripts over that account
+    @Column(name = "rollup_account", length = 64)
+    private String rollupAccount;
+
     @Column(name = "created_by")
     private String createdBy;
 
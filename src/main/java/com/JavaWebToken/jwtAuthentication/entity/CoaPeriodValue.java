@@ -0,0 +1,51 @@
+package com.JavaWebToken.jwtAuthentication.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Value of one COA version for one report period inside a closed period. Stored as text with its
+ * type so it reads back as the same Java type the script produced.
+ */
+@Entity
+@Table(name = "coa_period_values", uniqueConstraints = @UniqueConstraint(
+        name = "uk_coa_period_values_key", columnNames = {"coa_id", "coa_version", "start_date", "end_date"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CoaPeriodValue {
+
+    public enum ValueType { NULL, DECIMAL, DOUBLE, LONG, BOOLEAN, STRING, DATE, DATETIME }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "value_id")
+    private Long valueId;
+
+    @Column(name = "coa_id", nullable = false)
+    private Long coaId;
+
+    // 0 for COAs that were never versioned
+    @Column(name = "coa_version", nullable = false)
+    private Integer coaVersion;
+
+    @Column(name = "start_date", nullable = false)
+    private LocalDate startDate;
+
+    @Column(name = "end_date", nullable = false)
+    private LocalDate endDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "value_type", nullable = false, length = 10)
+    private ValueType valueType;
+
+    @Column(name = "value_text", columnDefinition = "TEXT")
+    private String valueText;
+
+    @Column(name = "computed_at", nullable = false)
+    private LocalDateTime computedAt;
+}
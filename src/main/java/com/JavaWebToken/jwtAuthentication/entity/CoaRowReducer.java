@@ -0,0 +1,12 @@
+package com.JavaWebToken.jwtAuthentication.entity;
+
+/**
+ * How a COA script that returns detail rows is reduced to a single cell value. The rows are streamed
+ * and folded as they arrive; only the first column of each row is read.
+ */
+public enum CoaRowReducer {
+    SUM,    // numeric total of the column, null when every value is null
+    COUNT,  // number of rows
+    FIRST,  // value of the first row
+    LAST    // value of the last row
+}
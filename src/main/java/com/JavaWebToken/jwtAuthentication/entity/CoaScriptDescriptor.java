@@ -0,0 +1,57 @@
+package com.JavaWebToken.jwtAuthentication.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Shape of a COA sql_script, worked out once when the COA is saved so report generation
+ * can dispatch on it instead of scanning the SQL text for every cell.
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CoaScriptDescriptor {
+
+    public enum AggregateKind { NONE, SUM, AVG, COUNT, MAX, MIN }
+
+    public enum ResultType {
+        DECIMAL,    // aggregate over raw ? markers, returned as BigDecimal (null stays null)
+        NUMBER,     // aggregate over named placeholders, returned as double (null becomes 0)
+        OBJECT      // anything else, returned as the driver's value
+    }
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "script_aggregate_kind", length = 10)
+    private AggregateKind aggregateKind;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "script_result_type", length = 10)
+    private ResultType resultType;
+
+    // Comma separated placeholder names, e.g. "startDate,endDate"
+    @Column(name = "script_placeholders")
+    private String placeholders;
+
+    @Column(name = "script_parameter_count")
+    private Integer parameterCount;
+
+    // Script uses raw ? markers rather than named placeholders
+    @Column(name = "script_positional")
+    private Boolean positional;
+
+    // Single SELECT returning exactly one row, safe to fuse with other scripts
+    @Column(name = "script_scalar")
+    private Boolean scalar;
+
+    public boolean isAggregate() {
+        return aggregateKind != null && aggregateKind != AggregateKind.NONE;
+    }
+}
@@ -0,0 +1,47 @@
+package com.JavaWebToken.jwtAuthentication.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One day of ledger postings for one account, maintained by LedgerRollupService from the table
+ * configured in {@code report.rollup.source-table}. COAs with a rollup account are answered from here.
+ */
+@Entity
+@Table(name = "ledger_daily_rollup", indexes = @Index(name = "idx_ledger_rollup_account_date", columnList = "account_code, rollup_date"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LedgerDailyRollup {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "amount_total", precision = 19, scale = 4)
+    private BigDecimal amountTotal;
+
+    @Column(name = "row_count", nullable = false)
+    private Long rowCount;
+
+    @Column(name = "refreshed_at", nullable = false)
+    private LocalDateTime refreshedAt;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        @Column(name = "rollup_date", nullable = false)
+        private LocalDate rollupDate;
+
+        @Column(name = "account_code", nullable = false, length = 64)
+        private String accountCode;
+    }
+}
@@ -0,0 +1,37 @@
+package com.JavaWebToken.jwtAuthentication.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Watermark of the ledger rollup: every day up to and including {@code completeThrough} has been
+ * aggregated, so periods ending on or before it can be answered from the rollup.
+ */
+@Entity
+@Table(name = "rollup_refresh_state")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RollupRefreshState {
+
+    @Id
+    @Column(name = "source_table", length = 128)
+    private String sourceTable;
+
+    @Column(name = "complete_through")
+    private LocalDate completeThrough;
+
+    @Column(name = "last_refreshed_at")
+    private LocalDateTime lastRefreshedAt;
+
+    // Rollup rows rewritten by the last refresh
+    @Column(name = "last_rows_written")
+    private Integer lastRowsWritten;
+
+    @Column(name = "last_duration_ms")
+    private Long lastDurationMs;
+}
@@ -0,0 +1,15 @@
+package com.JavaWebToken.jwtAuthentication.repository;
+
+import com.JavaWebToken.jwtAuthentication.entity.ClosedPeriod;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+public interface ClosedPeriodRepository extends JpaRepository<ClosedPeriod, Long> {
+
+    List<ClosedPeriod> findAllByOrderByStartDateDesc();
+
+    Optional<ClosedPeriod> findByStartDateAndEndDate(LocalDate startDate, LocalDate endDate);
+}
@@ -0,0 +1,23 @@
+package com.JavaWebToken.jwtAuthentication.repository;
+
+import com.JavaWebToken.jwtAuthentication.entity.CoaPeriodValue;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface CoaPeriodValueRepository extends JpaRepository<CoaPeriodValue, Long> {
+
+    List<CoaPeriodValue> findByCoaIdInAndStartDateAndEndDate(Collection<Long> coaIds, LocalDate startDate, LocalDate endDate);
+
+    // Re-opening a period drops every value frozen for a report period inside it
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CoaPeriodValue v WHERE v.startDate >= :startDate AND v.endDate <= :endDate")
+    int deleteWithin(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+}
@@ -1,10 +1,16 @@
 package com.JavaWebToken.jwtAuthentication.repository;
 
 import com.JavaWebToken.jwtAuthentication.dto.CellMappingDTO;
+import com.JavaWebToken.jwtAuthentication.entity.CoaRowReducer;
+import com.JavaWebToken.jwtAuthentication.entity.CoaScriptDescriptor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -12,8 +18,44 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ReportJdbcRepository {
 
+    private static final RowMapper<CellMappingDTO> CELL_MAPPING_ROW_MAPPER = (rs, rowNum) ->
+            new CellMappingDTO(
+                    rs.getString("targetCell"),
+                    rs.getString("elementName"),
+                    rs.getString("coaName"),
+                    rs.getString("coaCode"),
+                    rs.getString("sqlScript"),
+                    rs.getLong("mappingId"),
+                    rs.getString("sheetName"),
+                    rs.getLong("coaId"),
+                    rs.getObject("coaVersion", Integer.class),
+                    mapScriptDescriptor(rs),
+                    rs.getString("rowReducer") != null ? CoaRowReducer.valueOf(rs.getString("rowReducer")) : null,
+                    rs.getString("rollupAccount"),
+                    rs.getString("formula")
+            );
+
     private final JdbcTemplate jdbcTemplate;
 
+    // COAs saved before descriptors existed have no stored shape; the compiler derives it on demand
+    private static CoaScriptDescriptor mapScriptDescriptor(ResultSet rs) throws SQLException {
+        String resultType = rs.getString("resultType");
+        if (resultType == null) {
+            return null;
+        }
+        String aggregateKind = rs.getString("aggregateKind");
+        return CoaScriptDescriptor.builder()
+                .aggregateKind(aggregateKind != null
+                        ? CoaScriptDescriptor.AggregateKind.valueOf(aggregateKind)
+                        : CoaScriptDescriptor.AggregateKind.NONE)
+                .resultType(CoaScriptDescriptor.ResultType.valueOf(resultType))
+                .placeholders(rs.getString("placeholders"))
+                .parameterCount(rs.getObject("parameterCount", Integer.class))
+                .positional(rs.getObject("positional", Boolean.class))
+                .scalar(rs.getObject("scalar", Boolean.class))
+                .build();
+    }
+
     public List<CellMappingDTO> getCellMappings(String sheetName) {
         String sql = """
             SELECT 
@@ -23,7 +65,18 @@ public class ReportJdbcRepository {
                 c.coa_code as coaCode,
                 c.sql_script as sqlScript,
                 m.mapping_id as mappingId,
-                s.excell_sheet_name as sheetName
+                s.excell_sheet_name as sheetName,
+                c.coa_id as coaId,
+                (SELECT MAX(v.version_number) FROM coa_versions v WHERE v.coa_id = c.coa_id) as coaVersion,
+                c.script_aggregate_kind as aggregateKind,
+                c.script_result_type as resultType,
+                c.script_placeholders as placeholders,
+                c.script_parameter_count as parameterCount,
+                c.script_positional as positional,
+                c.script_scalar as scalar,
+                c.row_reducer as rowReducer,
+                c.rollup_account as rollupAccount,
+                c.formula as formula
             FROM excel_elements e
             JOIN mapped_cell_info m ON e.element_id = m.element_id
             JOIN coa c ON m.coa_id = c.coa_id
@@ -32,16 +85,7 @@ public class ReportJdbcRepository {
             ORDER BY e.exel_cell_value
             """;
 
-        return jdbcTemplate.query(sql, (rs, rowNum) ->
-                new CellMappingDTO(
-                        rs.getString("targetCell"),
-                        rs.getString("elementName"),
-                        rs.getString("coaName"),
-                        rs.getString("coaCode"),
-                        rs.getString("sqlScript"),
-                        rs.getLong("mappingId"),
-                        rs.getString("sheetName")
-                ), sheetName);
+        return jdbcTemplate.query(sql, CELL_MAPPING_ROW_MAPPER, sheetName);
     }
 
     public List<String> getAllSheetNames() {
@@ -58,7 +102,18 @@ public class ReportJdbcRepository {
                 c.coa_code as coaCode,
                 c.sql_script as sqlScript,
                 m.mapping_id as mappingId,
-                s.excell_sheet_name as sheetName
+                s.excell_sheet_name as sheetName,
+                c.coa_id as coaId,
+                (SELECT MAX(v.version_number) FROM coa_versions v WHERE v.coa_id = c.coa_id) as coaVersion,
+                c.script_aggregate_kind as aggregateKind,
+                c.script_result_type as resultType,
+                c.script_placeholders as placeholders,
+                c.script_parameter_count as parameterCount,
+                c.script_positional as positional,
+                c.script_scalar as scalar,
+                c.row_reducer as rowReducer,
+                c.rollup_account as rollupAccount,
+                c.formula as formula
             FROM excel_elements e
             JOIN mapped_cell_info m ON e.element_id = m.element_id
             JOIN coa c ON m.coa_id = c.coa_id
@@ -67,16 +122,7 @@ public class ReportJdbcRepository {
             ORDER BY e.exel_cell_value
             """;
 
-        return jdbcTemplate.query(sql, (rs, rowNum) ->
-                new CellMappingDTO(
-                        rs.getString("targetCell"),
-                        rs.getString("elementName"),
-                        rs.getString("coaName"),
-                        rs.getString("coaCode"),
-                        rs.getString("sqlScript"),
-                        rs.getLong("mappingId"),
-                        rs.getString("sheetName")
-                ), sheetId);
+        return jdbcTemplate.query(sql, CELL_MAPPING_ROW_MAPPER, sheetId);
     }
 
     public List<CellMappingDTO> getAllCellMappings() {
@@ -88,7 +134,18 @@ public class ReportJdbcRepository {
                 c.coa_code as coaCode,
                 c.sql_script as sqlScript,
                 m.mapping_id as mappingId,
-                s.excell_sheet_name as sheetName
+                s.excell_sheet_name as sheetName,
+                c.coa_id as coaId,
+                (SELECT MAX(v.version_number) FROM coa_versions v WHERE v.coa_id = c.coa_id) as coaVersion,
+                c.script_aggregate_kind as aggregateKind,
+                c.script_result_type as resultType,
+                c.script_placeholders as placeholders,
+                c.script_parameter_count as parameterCount,
+                c.script_positional as positional,
+                c.script_scalar as scalar,
+                c.row_reducer as rowReducer,
+                c.rollup_account as rollupAccount,
+                c.formula as formula
             FROM excel_elements e
             JOIN mapped_cell_info m ON e.element_id = m.element_id
             JOIN coa c ON m.coa_id = c.coa_id
@@ -96,16 +153,7 @@ public class ReportJdbcRepository {
             ORDER BY s.excell_sheet_name, e.exel_cell_value
             """;
 
-        return jdbcTemplate.query(sql, (rs, rowNum) ->
-                new CellMappingDTO(
-                        rs.getString("targetCell"),
-                        rs.getString("elementName"),
-                        rs.getString("coaName"),
-                        rs.getString("coaCode"),
-                        rs.getString("sqlScript"),
-                        rs.getLong("mappingId"),
-                        rs.getString("sheetName")
-                ));
+        return jdbcTemplate.query(sql, CELL_MAPPING_ROW_MAPPER);
     }
 
     public List<CellMappingDTO> getCellMappingsBySheetNames(List<String> sheetNames) {
@@ -122,7 +170,18 @@ public class ReportJdbcRepository {
                 c.coa_code as coaCode,
                 c.sql_script as sqlScript,
                 m.mapping_id as mappingId,
-                s.excell_sheet_name as sheetName
+                s.excell_sheet_name as sheetName,
+                c.coa_id as coaId,
+                (SELECT MAX(v.version_number) FROM coa_versions v WHERE v.coa_id = c.coa_id) as coaVersion,
+                c.script_aggregate_kind as aggregateKind,
+                c.script_result_type as resultType,
+                c.script_placeholders as placeholders,
+                c.script_parameter_count as parameterCount,
+                c.script_positional as positional,
+                c.script_scalar as scalar,
+                c.row_reducer as rowReducer,
+                c.rollup_account as rollupAccount,
+                c.formula as formula
             FROM excel_elements e
             JOIN mapped_cell_info m ON e.element_id = m.element_id
             JOIN coa c ON m.coa_id = c.coa_id
@@ -131,15 +190,40 @@ public class ReportJdbcRepository {
             ORDER BY s.excell_sheet_name, e.exel_cell_value
             """, inClause);
 
-        return jdbcTemplate.query(sql, (rs, rowNum) ->
-                new CellMappingDTO(
-                        rs.getString("targetCell"),
-                        rs.getString("elementName"),
-                        rs.getString("coaName"),
-                        rs.getString("coaCode"),
-                        rs.getString("sqlScript"),
-                        rs.getLong("mappingId"),
-                        rs.getString("sheetName")
-                ), sheetNames.toArray());
+        return jdbcTemplate.query(sql, CELL_MAPPING_ROW_MAPPER, sheetNames.toArray());
+    }
+
+    // Active COAs by code, shaped like mappings without a cell; used to resolve derived COA references
+    public List<CellMappingDTO> getCoaDefinitionsByCodes(Collection<String> coaCodes) {
+        if (coaCodes == null || coaCodes.isEmpty()) {
+            return List.of();
+        }
+
+        String inClause = String.join(",", Collections.nCopies(coaCodes.size(), "?"));
+        String sql = String.format("""
+            SELECT 
+                NULL as targetCell,
+                NULL as elementName,
+                c.coa_name as coaName,
+                c.coa_code as coaCode,
+                c.sql_script as sqlScript,
+                NULL as mappingId,
+                NULL as sheetName,
+                c.coa_id as coaId,
+                (SELECT MAX(v.version_number) FROM coa_versions v WHERE v.coa_id = c.coa_id) as coaVersion,
+                c.script_aggregate_kind as aggregateKind,
+                c.script_result_type as resultType,
+                c.script_placeholders as placeholders,
+                c.script_parameter_count as parameterCount,
+                c.script_positional as positional,
+                c.script_scalar as scalar,
+                c.row_reducer as rowReducer,
+                c.rollup_account as rollupAccount,
+                c.formula as formula
+            FROM coa c
+            WHERE c.archived = false AND c.coa_code IN (%s)
+            """, inClause);
+
+        return jdbcTemplate.query(sql, CELL_MAPPING_ROW_MAPPER, coaCodes.toArray());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,27 @@
+package com.JavaWebToken.jwtAuthentication.repository;
+
+import com.JavaWebToken.jwtAuthentication.entity.ReportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface ReportJobRepository extends JpaRepository<ReportJob, String> {
+
+    List<ReportJob> findByStatusInOrderByCreatedAtAsc(Collection<ReportJob.Status> statuses);
+
+    List<ReportJob> findByStatusInAndCompletedAtBefore(Collection<ReportJob.Status> statuses, LocalDateTime completedBefore);
+
+    // Progress ticks touch only the counters, not the whole row
+    @Modifying
+    @Transactional
+    @Query("UPDATE ReportJob j SET j.cellsDone = :cellsDone, j.cellsTotal = :cellsTotal WHERE j.jobId = :jobId")
+    int updateProgress(@Param("jobId") String jobId,
+                       @Param("cellsDone") int cellsDone,
+                       @Param("cellsTotal") int cellsTotal);
+}
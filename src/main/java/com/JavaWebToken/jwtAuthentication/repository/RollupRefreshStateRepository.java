@@ -0,0 +1,7 @@
+package com.JavaWebToken.jwtAuthentication.repository;
+
+import com.JavaWebToken.jwtAuthentication.entity.RollupRefreshState;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface RollupRefreshStateRepository extends JpaRepository<RollupRefreshState, String> {
+}
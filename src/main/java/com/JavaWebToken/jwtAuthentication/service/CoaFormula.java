@@ -0,0 +1,200 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Arithmetic over other COAs, e.g. {@code [4000] - [5000]} or {@code ([4000] - [5000]) / [4000] * 100}.
+ * COA codes are written in square brackets; numbers, {@code + - * /}, unary minus and parentheses are supported.
+ */
+public final class CoaFormula {
+
+    private final String text;
+    private final Node root;
+    private final Set<String> references;
+
+    private CoaFormula(String text, Node root, Set<String> references) {
+        this.text = text;
+        this.root = root;
+        this.references = Collections.unmodifiableSet(references);
+    }
+
+    /**
+     * @throws CoaFormulaException if the text is not a valid formula
+     */
+    public static CoaFormula parse(String text) {
+        if (text == null || text.isBlank()) {
+            throw new CoaFormulaException("Formula is empty");
+        }
+        Parser parser = new Parser(text);
+        Node root = parser.expression();
+        parser.skipSpaces();
+        if (parser.pos < text.length()) {
+            throw new CoaFormulaException("Unexpected '" + text.charAt(parser.pos) + "' at position " + (parser.pos + 1));
+        }
+        return new CoaFormula(text, root, parser.references);
+    }
+
+    // COA codes referenced by the formula, in order of first appearance
+    public Set<String> references() {
+        return references;
+    }
+
+    /**
+     * @param values value of each referenced COA code
+     * @throws ArithmeticException on division by zero
+     */
+    public BigDecimal evaluate(Function<String, BigDecimal> values) {
+        return root.evaluate(values);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    private sealed interface Node permits Constant, Reference, Negate, Binary {
+        BigDecimal evaluate(Function<String, BigDecimal> values);
+    }
+
+    private record Constant(BigDecimal value) implements Node {
+        public BigDecimal evaluate(Function<String, BigDecimal> values) {
+            return value;
+        }
+    }
+
+    private record Reference(String code) implements Node {
+        public BigDecimal evaluate(Function<String, BigDecimal> values) {
+            return values.apply(code);
+        }
+    }
+
+    private record Negate(Node operand) implements Node {
+        public BigDecimal evaluate(Function<String, BigDecimal> values) {
+            return operand.evaluate(values).negate();
+        }
+    }
+
+    private record Binary(char operator, Node left, Node right) implements Node {
+        public BigDecimal evaluate(Function<String, BigDecimal> values) {
+            BigDecimal l = left.evaluate(values);
+            BigDecimal r = right.evaluate(values);
+            return switch (operator) {
+                case '+' -> l.add(r);
+                case '-' -> l.subtract(r);
+                case '*' -> l.multiply(r);
+                default -> {
+                    if (r.signum() == 0) {
+                        throw new ArithmeticException("Division by zero");
+                    }
+                    yield l.divide(r, MathContext.DECIMAL128);
+                }
+            };
+        }
+    }
+
+    private static final class Parser {
+        private final String text;
+        private final Set<String> references = new LinkedHashSet<>();
+        private int pos;
+
+        private Parser(String text) {
+            this.text = text;
+        }
+
+        Node expression() {
+            Node node = term();
+            while (true) {
+                skipSpaces();
+                if (peek('+') || peek('-')) {
+                    char operator = text.charAt(pos++);
+                    node = new Binary(operator, node, term());
+                } else {
+                    return node;
+                }
+            }
+        }
+
+        Node term() {
+            Node node = factor();
+            while (true) {
+                skipSpaces();
+                if (peek('*') || peek('/')) {
+                    char operator = text.charAt(pos++);
+                    node = new Binary(operator, node, factor());
+                } else {
+                    return node;
+                }
+            }
+        }
+
+        Node factor() {
+            skipSpaces();
+            if (pos >= text.length()) {
+                throw new CoaFormulaException("Formula ends unexpectedly");
+            }
+            char c = text.charAt(pos);
+            if (c == '-') {
+                pos++;
+                return new Negate(factor());
+            }
+            if (c == '+') {
+                pos++;
+                return factor();
+            }
+            if (c == '(') {
+                pos++;
+                Node inner = expression();
+                skipSpaces();
+                expect(')');
+                return inner;
+            }
+            if (c == '[') {
+                int close = text.indexOf(']', pos + 1);
+                if (close < 0) {
+                    throw new CoaFormulaException("Unclosed '[' at position " + (pos + 1));
+                }
+                String code = text.substring(pos + 1, close).trim();
+                if (code.isEmpty()) {
+                    throw new CoaFormulaException("Empty COA reference at position " + (pos + 1));
+                }
+                pos = close + 1;
+                references.add(code);
+                return new Reference(code);
+            }
+            if (Character.isDigit(c) || c == '.') {
+                int start = pos;
+                while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+                    pos++;
+                }
+                try {
+                    return new Constant(new BigDecimal(text.substring(start, pos)));
+                } catch (NumberFormatException e) {
+                    throw new CoaFormulaException("Invalid number '" + text.substring(start, pos) + "'");
+                }
+            }
+            throw new CoaFormulaException("Unexpected '" + c + "' at position " + (pos + 1));
+        }
+
+        void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private boolean peek(char c) {
+            return pos < text.length() && text.charAt(pos) == c;
+        }
+
+        private void expect(char c) {
+            if (!peek(c)) {
+                throw new CoaFormulaException("Expected '" + c + "' at position " + (pos + 1));
+            }
+            pos++;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+/**
+ * A derived COA formula that cannot be parsed, references an unknown COA, or depends on itself, or a change
+ * to a COA that active formulas still reference.
+ */
+public class CoaFormulaException extends IllegalArgumentException {
+
+    public CoaFormulaException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,180 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import com.JavaWebToken.jwtAuthentication.dto.CoaProfileDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps a rolling window of execution times per COA so the slowest scripts of a report can be ranked
+ * by p50/p99. The first time a COA runs longer than {@code report.profiler.explain-threshold-ms}, its
+ * {@code EXPLAIN} plan is captured once and kept with the profile.
+ *
+ * <p>Only statements that ran for a single COA are recorded; fused statements are timed as a whole
+ * by {@link ReportMetrics} since their cost cannot be split between their members. Profiles are keyed
+ * by COA id, or by the whitespace-normalized compiled SQL for statements without one, and at most
+ * {@code report.profiler.max-profiles} are kept, the least used evicted first.</p>
+ */
+@Component
+@Slf4j
+public class CoaQueryProfiler {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${report.profiler.enabled:true}")
+    private boolean enabled;
+
+    @Value("${report.profiler.window:200}")
+    private int window;
+
+    @Value("${report.profiler.explain-threshold-ms:2000}")
+    private long explainThresholdMillis;
+
+    private final Cache<String, CoaProfile> profiles;
+
+    public CoaQueryProfiler(@Qualifier("reportJdbcTemplate") JdbcTemplate jdbcTemplate,
+                            @Value("${report.profiler.max-profiles:1000}") long maxProfiles) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.profiles = Caffeine.newBuilder().maximumSize(maxProfiles).build();
+    }
+
+    public void record(PreparedCoaQuery query, long nanos) {
+        if (!enabled) {
+            return;
+        }
+        Long coaId = query.mapping().getCoaId();
+        String normalizedSql = coaId == null ? query.sql().trim().replaceAll("\\s+", " ") : null;
+        String key = coaId != null ? "coa:" + coaId : "sql:" + normalizedSql;
+        CoaProfile profile = profiles.get(key, k -> new CoaProfile(window));
+        boolean firstSlow = profile.add(query, normalizedSql, nanos, explainThresholdMillis * 1_000_000L);
+        if (firstSlow) {
+            profile.explainPlan = explain(query);
+            log.warn("Slow COA {} took {} ms for {} to {}; captured its plan",
+                    query.mapping().getCoaCode() != null ? query.mapping().getCoaCode() : normalizedSql,
+                    nanos / 1_000_000, query.startDate(), query.endDate());
+        }
+    }
+
+    /**
+     * Profiles ranked by the given statistic (p50, p99, max or total), slowest first.
+     */
+    public List<CoaProfileDTO> top(int limit, String sortBy) {
+        Comparator<CoaProfileDTO> order = switch (sortBy == null ? "p99" : sortBy.toLowerCase()) {
+            case "p50" -> Comparator.comparingDouble(CoaProfileDTO::getP50Millis);
+            case "p99" -> Comparator.comparingDouble(CoaProfileDTO::getP99Millis);
+            case "max" -> Comparator.comparingDouble(CoaProfileDTO::getMaxMillis);
+            case "total" -> Comparator.comparingDouble(CoaProfileDTO::getTotalMillis);
+            default -> throw new IllegalArgumentException("Unknown sort: " + sortBy + " (use p50, p99, max or total)");
+        };
+        return profiles.asMap().values().stream()
+                .map(CoaProfile::snapshot)
+                .sorted(order.reversed())
+                .limit(Math.max(limit, 0))
+                .collect(Collectors.toList());
+    }
+
+    // EXPLAIN does not run the statement, so it is cheap enough to take on the reporting thread
+    private String explain(PreparedCoaQuery query) {
+        String sql = query.sql().trim();
+        String head = sql.length() >= 6 ? sql.substring(0, 6).toUpperCase() : sql.toUpperCase();
+        if (!head.startsWith("SELECT") && !head.startsWith("WITH")) {
+            return "Not a SELECT statement";
+        }
+        try {
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList("EXPLAIN " + sql, query.args());
+            return rows.stream()
+                    .map(row -> row.entrySet().stream()
+                            .map(column -> column.getKey() + "=" + column.getValue())
+                            .collect(Collectors.joining(", ")))
+                    .collect(Collectors.joining("\n"));
+        } catch (Exception e) {
+            log.warn("Could not capture EXPLAIN for COA {}: {}", query.mapping().getCoaCode(), e.getMessage());
+            return "EXPLAIN failed: " + e.getMessage();
+        }
+    }
+
+    private static final class CoaProfile {
+        private final long[] samples;
+        private int next;
+        private int size;
+        private long executions;
+        private long totalNanos;
+        private long maxNanos;
+        private Long coaId;
+        private String coaCode;
+        private String coaName;
+        private LocalDate lastStartDate;
+        private LocalDate lastEndDate;
+        private LocalDateTime lastSeen;
+        private boolean explained;
+        private volatile String explainPlan;
+
+        CoaProfile(int window) {
+            this.samples = new long[Math.max(window, 1)];
+        }
+
+        // Returns true for the first sample over the threshold, which is the one to explain
+        // Statements without a COA code are labelled by their SQL, which is also their key
+        synchronized boolean add(PreparedCoaQuery query, String normalizedSql, long nanos, long thresholdNanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            size = Math.min(size + 1, samples.length);
+            executions++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            coaId = query.mapping().getCoaId();
+            coaCode = query.mapping().getCoaCode() != null ? query.mapping().getCoaCode() : normalizedSql;
+            coaName = query.mapping().getCoaName();
+            lastStartDate = query.startDate();
+            lastEndDate = query.endDate();
+            lastSeen = LocalDateTime.now();
+            if (!explained && nanos >= thresholdNanos) {
+                explained = true;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized CoaProfileDTO snapshot() {
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            CoaProfileDTO dto = new CoaProfileDTO();
+            dto.setCoaId(coaId);
+            dto.setCoaCode(coaCode);
+            dto.setCoaName(coaName);
+            dto.setExecutions(executions);
+            dto.setSampleSize(size);
+            dto.setP50Millis(toMillis(percentile(sorted, 0.50)));
+            dto.setP99Millis(toMillis(percentile(sorted, 0.99)));
+            dto.setMaxMillis(toMillis(maxNanos));
+            dto.setTotalMillis(toMillis(totalNanos));
+            dto.setLastStartDate(lastStartDate);
+            dto.setLastEndDate(lastEndDate);
+            dto.setLastSeen(lastSeen);
+            dto.setExplainPlan(explainPlan);
+            return dto;
+        }
+
+        // Nearest-rank percentile over the window
+        private static long percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(quantile * sorted.length);
+            return sorted[Math.max(rank - 1, 0)];
+        }
+
+        private static double toMillis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import com.JavaWebToken.jwtAuthentication.dto.CellMappingDTO;
+
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Results of one report request, keyed by (COA, period). The first mapping to ask for a key owns the slot
+ * and runs the query; every other cell or sheet of the request referencing the same COA and period
+ * shares the owner's value. Create one per request and drop it afterwards; it is never evicted.
+ */
+public class CoaResultMemo {
+
+    private final ConcurrentHashMap<Key, CompletableFuture<Object>> results = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+
+    public Slot slot(CellMappingDTO mapping, LocalDate startDate, LocalDate endDate) {
+        Key key = new Key(mapping.getCoaId(), mapping.getCoaId() == null ? mapping.getSqlScript() : null,
+                startDate, endDate);
+        CompletableFuture<Object> created = new CompletableFuture<>();
+        CompletableFuture<Object> existing = results.putIfAbsent(key, created);
+        if (existing != null) {
+            hits.increment();
+            return new Slot(existing, false);
+        }
+        return new Slot(created, true);
+    }
+
+    public int size() {
+        return results.size();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @param owner whether the caller created the slot and must complete {@code value}
+     */
+    public record Slot(CompletableFuture<Object> value, boolean owner) {
+    }
+
+    // COAs are identified by id; a mapping without one falls back to its script text
+    private record Key(Long coaId, String script, LocalDate startDate, LocalDate endDate) {
+        private Key {
+            Objects.requireNonNull(startDate);
+            Objects.requireNonNull(endDate);
+        }
+    }
+}
@@ -1,15 +1,26 @@
 package com.JavaWebToken.jwtAuthentication.service;
 
+import com.JavaWebToken.jwtAuthentication.config.CacheConfig;
 import com.JavaWebToken.jwtAuthentication.dto.CoaDTO;
 import com.JavaWebToken.jwtAuthentication.entity.Coa;
 import com.JavaWebToken.jwtAuthentication.repository.CoaRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -18,12 +29,19 @@ public class CoaService {
 
     private final CoaRepository coaRepository;
     private final CoaVersionService coaVersionService;
+    private final CoaSqlCompiler coaSqlCompiler;
+    private final CacheManager cacheManager;
 
     @Transactional
     public Coa createCoa(Coa coa) {
+        validateFormula(coa.getCoaCode(), coa.getFormula());
+        if (coa.getSqlScript() == null) {
+            coa.setSqlScript(""); // derived COAs have no script of their own
+        }
         coa.setCreatedDate(LocalDateTime.now());
         coa.setModifiedDate(LocalDateTime.now());
         coa.setArchived(false); // Ensure not archived on creation
+        coa.setScriptDescriptor(coaSqlCompiler.describe(coa.getSqlScript()));
         Coa savedCoa = coaRepository.save(coa);
 
         // Create initial version
@@ -56,16 +74,21 @@ public class CoaService {
             throw new IllegalArgumentException("Cannot update an archived COA");
         }
 
+        validateFormula(updated.getCoaCode(), updated.getFormula());
+
         StringBuilder changes = new StringBuilder("{");
         boolean hasChanges = false;
+        boolean resultsChanged = false;
 
         // Track changes
         if (!Objects.equals(existing.getCoaCode(), updated.getCoaCode())) {
+            ensureNotReferenced(existing, "renamed");
             if (hasChanges) changes.append(", ");
             changes.append(String.format("\"coaCode\": {\"old\": \"%s\", \"new\": \"%s\"}",
                     existing.getCoaCode(), updated.getCoaCode()));
             existing.setCoaCode(updated.getCoaCode());
             hasChanges = true;
+            resultsChanged = true;
         }
 
         if (!Objects.equals(existing.getCoaName(), updated.getCoaName())) {
@@ -88,8 +111,43 @@ public class CoaService {
         if (!Objects.equals(existing.getSqlScript(), updated.getSqlScript())) {
             if (hasChanges) changes.append(", ");
             changes.append("\"sqlScript\": \"updated\"");
-            existing.setSqlScript(updated.getSqlScript());
+            existing.setSqlScript(updated.getSqlScript() != null ? updated.getSqlScript() : "");
+            existing.setScriptDescriptor(coaSqlCompiler.describe(existing.getSqlScript()));
+            hasChanges = true;
+            resultsChanged = true;
+        }
+
+        if (!Objects.equals(existing.getFormula(), updated.getFormula())) {
+            if (hasChanges) changes.append(", ");
+            changes.append("\"formula\": \"updated\"");
+            existing.setFormula(updated.getFormula());
             hasChanges = true;
+            resultsChanged = true;
+        }
+
+        if (existing.getRowReducer() != updated.getRowReducer()) {
+            if (hasChanges) changes.append(", ");
+            changes.append(String.format("\"rowReducer\": {\"old\": \"%s\", \"new\": \"%s\"}",
+                    existing.getRowReducer() != null ? existing.getRowReducer() : "",
+                    updated.getRowReducer() != null ? updated.getRowReducer() : ""));
+            existing.setRowReducer(updated.getRowReducer());
+            hasChanges = true;
+            resultsChanged = true;
+        }
+
+        if (!Objects.equals(existing.getRollupAccount(), updated.getRollupAccount())) {
+            if (hasChanges) changes.append(", ");
+            changes.append(String.format("\"rollupAccount\": {\"old\": \"%s\", \"new\": \"%s\"}",
+                    existing.getRollupAccount() != null ? existing.getRollupAccount() : "",
+                    updated.getRollupAccount() != null ? updated.getRollupAccount() : ""));
+            existing.setRollupAccount(updated.getRollupAccount());
+            hasChanges = true;
+            resultsChanged = true;
+        }
+
+        // COAs saved before descriptors existed pick one up on their next save
+        if (existing.getScriptDescriptor() == null) {
+            existing.setScriptDescriptor(coaSqlCompiler.describe(existing.getSqlScript()));
         }
 
         if (hasChanges) {
@@ -105,6 +163,10 @@ public class CoaService {
                     "UPDATE",
                     changes.toString());
 
+            if (resultsChanged) {
+                evictReportData();
+            }
+
             return savedCoa;
         }
 
@@ -145,6 +207,9 @@ public class CoaService {
                     dto.setCoaName(coa.getCoaName());
                     dto.setDescription(coa.getDescription());
                     dto.setSqlScript(coa.getSqlScript());
+                    dto.setRowReducer(coa.getRowReducer());
+                    dto.setRollupAccount(coa.getRollupAccount());
+                    dto.setFormula(coa.getFormula());
                     dto.setCreatedBy(coa.getCreatedBy());
                     dto.setArchived(coa.getArchived());
                     return dto;
@@ -162,6 +227,9 @@ public class CoaService {
                     dto.setCoaName(coa.getCoaName());
                     dto.setDescription(coa.getDescription());
                     dto.setSqlScript(coa.getSqlScript());
+                    dto.setRowReducer(coa.getRowReducer());
+                    dto.setRollupAccount(coa.getRollupAccount());
+                    dto.setFormula(coa.getFormula());
                     dto.setCreatedBy(coa.getCreatedBy());
                     dto.setArchived(coa.getArchived());
                     dto.setArchivedBy(coa.getArchivedBy());
@@ -183,6 +251,7 @@ public class CoaService {
         if (Boolean.TRUE.equals(coa.getArchived())) {
             throw new IllegalArgumentException("COA is already archived");
         }
+        ensureNotReferenced(coa, "archived");
 
         // Create version record for archive
         String changes = String.format(
@@ -196,6 +265,7 @@ public class CoaService {
         coa.setArchivedBy(archivedBy);
         coa.setArchivedDate(LocalDateTime.now());
         coa.setModifiedDate(LocalDateTime.now());
+        evictReportData();
 
         return coaRepository.save(coa);
     }
@@ -225,14 +295,94 @@ public class CoaService {
         coa.setArchivedBy(null);
         coa.setArchivedDate(null);
         coa.setModifiedDate(LocalDateTime.now());
+        evictReportData();
 
         return coaRepository.save(coa);
     }
 
+    /**
+     * Rejects formulas that do not parse, reference unknown COAs, or close a reference cycle
+     * through the formulas of other active COAs.
+     */
+    private void validateFormula(String coaCode, String formula) {
+        if (formula == null || formula.isBlank()) {
+            return;
+        }
+
+        CoaFormula parsed = CoaFormula.parse(formula);
+        Map<String, Set<String>> graph = new HashMap<>();
+        for (Coa coa : coaRepository.findByArchivedFalse()) {
+            Set<String> references = Set.of();
+            if (coa.getFormula() != null && !coa.getFormula().isBlank()) {
+                try {
+                    references = CoaFormula.parse(coa.getFormula()).references();
+                } catch (CoaFormulaException e) {
+                    // a stored formula that no longer parses cannot take part in a cycle
+                }
+            }
+            graph.put(coa.getCoaCode(), references);
+        }
+        graph.put(coaCode, parsed.references());
+
+        for (String reference : parsed.references()) {
+            if (!graph.containsKey(reference)) {
+                throw new CoaFormulaException("Unknown COA referenced: [" + reference + "]");
+            }
+        }
+
+        Deque<String> path = new ArrayDeque<>();
+        path.add(coaCode);
+        findCycle(coaCode, graph, path, new HashSet<>());
+    }
+
+    /**
+     * Rejects renaming, archiving or deleting a COA while other active formulas still reference its code,
+     * since they would otherwise resolve to an unknown COA in every report.
+     */
+    private void ensureNotReferenced(Coa coa, String action) {
+        if (coa.getCoaCode() == null) {
+            return;
+        }
+        List<String> referencedBy = coaRepository.findByArchivedFalse().stream()
+                .filter(other -> !Objects.equals(other.getCoaId(), coa.getCoaId()))
+                .filter(other -> other.getFormula() != null && !other.getFormula().isBlank())
+                .filter(other -> {
+                    try {
+                        return CoaFormula.parse(other.getFormula()).references().contains(coa.getCoaCode());
+                    } catch (CoaFormulaException e) {
+                        return false;
+                    }
+                })
+                .map(Coa::getCoaCode)
+                .sorted()
+                .collect(Collectors.toList());
+        if (!referencedBy.isEmpty()) {
+            throw new CoaFormulaException("[" + coa.getCoaCode() + "] cannot be " + action
+                    + " while referenced by: " + String.join(", ", referencedBy));
+        }
+    }
+
+    private void findCycle(String code, Map<String, Set<String>> graph, Deque<String> path, Set<String> cleared) {
+        for (String reference : graph.getOrDefault(code, Set.of())) {
+            if (reference.equals(path.peekFirst())) {
+                path.addLast(reference);
+                throw new CoaFormulaException("Circular reference: " + String.join(" -> ", path));
+            }
+            if (path.contains(reference) || !cleared.add(reference)) {
+                continue;
+            }
+            path.addLast(reference);
+            findCycle(reference, graph, path, cleared);
+            path.removeLast();
+        }
+    }
+
     // Hard delete - only for cleanup if needed
     @Transactional
     public void hardDeleteCoa(Long id) {
         coaRepository.findById(id).ifPresent(coa -> {
+            ensureNotReferenced(coa, "deleted");
+
             // Create a version record before hard deletion
             String changes = String.format(
                     "{\"action\": \"HARD_DELETE\", \"coaCode\": \"%s\", \"coaName\": \"%s\"}",
@@ -241,6 +391,29 @@ public class CoaService {
             coaVersionService.createVersion(coa, "system", "HARD_DELETE", changes);
 
             coaRepository.delete(coa);
+            evictReportData();
         });
     }
+
+    /**
+     * Drops cached report data once the current transaction commits. Cached reports only fingerprint the
+     * COAs mapped on the sheet, not the ones a formula pulls in, so any change that can alter a COA's
+     * value, code or availability clears the whole cache.
+     */
+    private void evictReportData() {
+        Cache reportData = cacheManager.getCache(CacheConfig.REPORT_DATA_CACHE);
+        if (reportData == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reportData.clear();
+                }
+            });
+        } else {
+            reportData.clear();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,210 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import com.JavaWebToken.jwtAuthentication.dto.CellMappingDTO;
+import com.JavaWebToken.jwtAuthentication.entity.CoaScriptDescriptor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Compiles COA scripts into parameterized SQL and caches the result per COA id and version.
+ *
+ * <p>Recognised placeholders are {@code ${name}}, {@code :name} and {@code @name} for
+ * {@code startDate}, {@code endDate} and {@code year}. Raw {@code ?} markers keep their historic
+ * meaning of (startDate, endDate). Placeholders inside string literals and comments are left alone.</p>
+ *
+ * <p>{@link #describe(String)} classifies a script once at save time; report generation uses the
+ * stored {@link CoaScriptDescriptor} and only derives one here for COAs saved before it existed.</p>
+ */
+@Component
+@Slf4j
+public class CoaSqlCompiler {
+
+    // Same aggregate detection report generation has always used to pick the result type
+    private static final Pattern AGGREGATE = Pattern.compile("(SUM|AVG|COUNT|MAX|MIN)\\(", Pattern.CASE_INSENSITIVE);
+    // Anything that can yield more than one row or is not a plain query
+    private static final Pattern NOT_SCALAR = Pattern.compile(
+            "\\b(GROUP\\s+BY|UNION|LIMIT|INTO|FOR\\s+UPDATE)\\b", Pattern.CASE_INSENSITIVE);
+
+    private final Map<Long, CompiledCoaSql> cache = new ConcurrentHashMap<>();
+
+    public CompiledCoaSql compile(CellMappingDTO mapping) {
+        String script = mapping.getSqlScript();
+        Long coaId = mapping.getCoaId();
+        if (coaId == null) {
+            return compile(script, mapping.getCoaVersion(), mapping.getScriptDescriptor());
+        }
+
+        CompiledCoaSql cached = cache.get(coaId);
+        if (cached != null
+                && Objects.equals(cached.coaVersion(), mapping.getCoaVersion())
+                && cached.sourceScript().equals(script)) {
+            return cached;
+        }
+
+        CompiledCoaSql compiled = compile(script, mapping.getCoaVersion(), mapping.getScriptDescriptor());
+        cache.put(coaId, compiled);
+        log.debug("Compiled COA {} v{} with {} parameters", coaId, mapping.getCoaVersion(),
+                compiled.parameters().size());
+        return compiled;
+    }
+
+    public void evict(Long coaId) {
+        cache.remove(coaId);
+    }
+
+    public CoaScriptDescriptor describe(String script) {
+        try {
+            return compile(script, null, null).descriptor();
+        } catch (IllegalArgumentException e) {
+            // Saving is still allowed; the cell reports the compile error when the report runs
+            log.warn("COA script cannot be compiled: {}", e.getMessage());
+            return CoaScriptDescriptor.builder()
+                    .aggregateKind(CoaScriptDescriptor.AggregateKind.NONE)
+                    .resultType(CoaScriptDescriptor.ResultType.OBJECT)
+                    .placeholders("")
+                    .parameterCount(0)
+                    .positional(true)
+                    .scalar(false)
+                    .build();
+        }
+    }
+
+    public CompiledCoaSql compile(String script, Integer coaVersion, CoaScriptDescriptor storedDescriptor) {
+        StringBuilder sql = new StringBuilder(script.length());
+        List<CoaSqlParameter> parameters = new ArrayList<>();
+        int positionalCount = 0;
+        int length = script.length();
+        int i = 0;
+
+        while (i < length) {
+            char ch = script.charAt(i);
+
+            if (ch == '\'' || ch == '"' || ch == '`') {
+                int end = skipQuoted(script, i, ch);
+                sql.append(script, i, end);
+                i = end;
+            } else if (ch == '-' && i + 1 < length && script.charAt(i + 1) == '-') {
+                int end = script.indexOf('\n', i);
+                end = end < 0 ? length : end;
+                sql.append(script, i, end);
+                i = end;
+            } else if (ch == '/' && i + 1 < length && script.charAt(i + 1) == '*') {
+                int end = script.indexOf("*/", i + 2);
+                end = end < 0 ? length : end + 2;
+                sql.append(script, i, end);
+                i = end;
+            } else if (ch == '?') {
+                if (positionalCount >= 2) {
+                    throw new IllegalArgumentException(
+                            "Positional scripts take at most two parameters (startDate, endDate)");
+                }
+                parameters.add(positionalCount++ == 0 ? CoaSqlParameter.START_DATE : CoaSqlParameter.END_DATE);
+                sql.append('?');
+                i++;
+            } else if (ch == '$' && i + 1 < length && script.charAt(i + 1) == '{') {
+                int close = script.indexOf('}', i + 2);
+                CoaSqlParameter parameter = close < 0 ? null
+                        : CoaSqlParameter.fromPlaceholderName(script.substring(i + 2, close));
+                if (parameter != null) {
+                    parameters.add(parameter);
+                    sql.append('?');
+                    i = close + 1;
+                } else {
+                    sql.append(ch);
+                    i++;
+                }
+            } else if ((ch == ':' || ch == '@') && (i == 0 || script.charAt(i - 1) != ch)) {
+                int end = i + 1;
+                while (end < length && Character.isJavaIdentifierPart(script.charAt(end))) {
+                    end++;
+                }
+                CoaSqlParameter parameter = CoaSqlParameter.fromPlaceholderName(script.substring(i + 1, end));
+                if (parameter != null) {
+                    parameters.add(parameter);
+                    sql.append('?');
+                    i = end;
+                } else {
+                    sql.append(ch);
+                    i++;
+                }
+            } else {
+                sql.append(ch);
+                i++;
+            }
+        }
+
+        String compiledSql = sql.toString();
+        CoaScriptDescriptor descriptor = storedDescriptor != null
+                ? storedDescriptor
+                : classify(compiledSql, parameters, positionalCount > 0);
+        return new CompiledCoaSql(script, coaVersion, compiledSql, List.copyOf(parameters), descriptor);
+    }
+
+    private static CoaScriptDescriptor classify(String sql, List<CoaSqlParameter> parameters, boolean positional) {
+        Matcher aggregate = AGGREGATE.matcher(sql);
+        CoaScriptDescriptor.AggregateKind aggregateKind = aggregate.find()
+                ? CoaScriptDescriptor.AggregateKind.valueOf(aggregate.group(1).toUpperCase())
+                : CoaScriptDescriptor.AggregateKind.NONE;
+
+        CoaScriptDescriptor.ResultType resultType;
+        if (aggregateKind == CoaScriptDescriptor.AggregateKind.NONE) {
+            resultType = CoaScriptDescriptor.ResultType.OBJECT;
+        } else if (positional) {
+            resultType = CoaScriptDescriptor.ResultType.DECIMAL;
+        } else {
+            resultType = CoaScriptDescriptor.ResultType.NUMBER;
+        }
+
+        String statement = sql.trim();
+        while (statement.endsWith(";")) {
+            statement = statement.substring(0, statement.length() - 1).trim();
+        }
+        boolean scalar = aggregateKind != CoaScriptDescriptor.AggregateKind.NONE
+                && statement.regionMatches(true, 0, "SELECT", 0, 6)
+                && statement.indexOf(';') < 0
+                && !NOT_SCALAR.matcher(statement).find();
+
+        String placeholders = parameters.stream()
+                .map(CoaSqlParameter::getPlaceholderName)
+                .distinct()
+                .collect(Collectors.joining(","));
+
+        return CoaScriptDescriptor.builder()
+                .aggregateKind(aggregateKind)
+                .resultType(resultType)
+                .placeholders(placeholders)
+                .parameterCount(parameters.size())
+                .positional(positional)
+                .scalar(scalar)
+                .build();
+    }
+
+    // Returns the index just past the literal opened at start, honouring doubled quotes and backslash escapes
+    private static int skipQuoted(String script, int start, char quote) {
+        int i = start + 1;
+        while (i < script.length()) {
+            char ch = script.charAt(i);
+            if (ch == '\\' && quote != '`') {
+                i += 2;
+            } else if (ch == quote) {
+                if (i + 1 < script.length() && script.charAt(i + 1) == quote) {
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return script.length();
+    }
+}
@@ -0,0 +1,40 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+/**
+ * Report period values a COA script can reference.
+ */
+public enum CoaSqlParameter {
+    START_DATE("startDate"),
+    END_DATE("endDate"),
+    YEAR("year");
+
+    private final String placeholderName;
+
+    CoaSqlParameter(String placeholderName) {
+        this.placeholderName = placeholderName;
+    }
+
+    public String getPlaceholderName() {
+        return placeholderName;
+    }
+
+    public Object valueFor(LocalDate startDate, LocalDate endDate) {
+        return switch (this) {
+            case START_DATE -> Date.valueOf(startDate);
+            case END_DATE -> Date.valueOf(endDate);
+            case YEAR -> startDate.getYear();
+        };
+    }
+
+    public static CoaSqlParameter fromPlaceholderName(String name) {
+        for (CoaSqlParameter parameter : values()) {
+            if (parameter.placeholderName.equals(name)) {
+                return parameter;
+            }
+        }
+        return null;
+    }
+}
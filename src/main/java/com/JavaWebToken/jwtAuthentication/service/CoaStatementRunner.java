@@ -0,0 +1,108 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import com.JavaWebToken.jwtAuthentication.entity.CoaRowReducer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapperResultSetExtractor;
+import org.springframework.jdbc.core.SingleColumnRowMapper;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Executes COA statements with the report limits applied: a JDBC query timeout of
+ * {@code report.sql.query-timeout} seconds capped by the run's {@link ReportDeadline}, and a MySQL
+ * {@code MAX_EXECUTION_TIME} hint of {@code report.sql.max-execution-time} seconds so the server aborts
+ * runaway SELECTs on its own. Each statement is tracked by the deadline while it runs so it can be cancelled.
+ * <p>
+ * Scripts with a {@link CoaRowReducer} are streamed {@code report.sql.fetch-size} rows at a time (server-side
+ * cursor with {@code useCursorFetch=true}) and folded as they arrive rather than materialised.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CoaStatementRunner {
+
+    private static final Pattern LEADING_SELECT = Pattern.compile("^\\s*SELECT\\b", Pattern.CASE_INSENSITIVE);
+
+    @Qualifier("reportJdbcTemplate")
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${report.sql.query-timeout:60}")
+    private int queryTimeoutSeconds;
+
+    @Value("${report.sql.max-execution-time:30}")
+    private int maxExecutionSeconds;
+
+    @Value("${report.sql.fetch-size:100}")
+    private int fetchSize;
+
+    // Same contract as JdbcTemplate.queryForObject: exactly one row, null column values allowed
+    public <T> T queryForObject(String sql, Class<T> requiredType, Object[] args, ReportDeadline deadline) {
+        List<T> rows = query(sql, args,
+                new RowMapperResultSetExtractor<>(SingleColumnRowMapper.newInstance(requiredType), 1), deadline);
+        return DataAccessUtils.nullableSingleResult(rows);
+    }
+
+    public Object reduceRows(String sql, Object[] args, CoaRowReducer reducer, ReportDeadline deadline) {
+        RowReduction reduction = new RowReduction(reducer);
+        query(sql, args, rs -> {
+            while (!reduction.isComplete() && rs.next()) {
+                reduction.accept(rs);
+            }
+            return null;
+        }, deadline, fetchSize);
+        log.debug("Reduced {} streamed rows with {}", reduction.rowCount(), reducer);
+        return reduction.result();
+    }
+
+    public <T> T query(String sql, Object[] args, ResultSetExtractor<T> extractor, ReportDeadline deadline) {
+        return query(sql, args, extractor, deadline, 0);
+    }
+
+    private <T> T query(String sql, Object[] args, ResultSetExtractor<T> extractor, ReportDeadline deadline,
+                        int statementFetchSize) {
+        String limited = withExecutionLimit(sql);
+        PreparedStatement[] statement = new PreparedStatement[1];
+        try {
+            return jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(limited);
+                ps.setQueryTimeout(deadline.statementTimeoutSeconds(queryTimeoutSeconds));
+                if (statementFetchSize > 0) {
+                    ps.setFetchSize(statementFetchSize);
+                }
+                new ArgumentPreparedStatementSetter(args).setValues(ps);
+                statement[0] = ps;
+                deadline.track(ps);
+                return ps;
+            }, extractor);
+        } finally {
+            if (statement[0] != null) {
+                deadline.untrack(statement[0]);
+            }
+        }
+    }
+
+    // The hint text is constant, so the statement stays identical across periods for the prepared statement cache
+    private String withExecutionLimit(String sql) {
+        if (maxExecutionSeconds <= 0) {
+            return sql;
+        }
+        Matcher select = LEADING_SELECT.matcher(sql);
+        if (!select.find()) {
+            return sql;
+        }
+        return sql.substring(0, select.end())
+                + " /*+ MAX_EXECUTION_TIME(" + maxExecutionSeconds * 1000L + ") */"
+                + sql.substring(select.end());
+    }
+}
@@ -0,0 +1,31 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import com.JavaWebToken.jwtAuthentication.entity.CoaScriptDescriptor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * A COA script rewritten with JDBC {@code ?} markers in place of its period placeholders.
+ * The SQL text is identical for every period, so the driver and server can reuse the prepared statement.
+ *
+ * @param sourceScript the script this was compiled from, used to detect edits that bypassed versioning
+ * @param coaVersion   COA version the script belongs to
+ * @param sql          parameterized SQL
+ * @param parameters   value bound to each {@code ?}, in order
+ * @param descriptor   stored or derived shape of the script
+ */
+public record CompiledCoaSql(String sourceScript,
+                             Integer coaVersion,
+                             String sql,
+                             List<CoaSqlParameter> parameters,
+                             CoaScriptDescriptor descriptor) {
+
+    public Object[] bind(LocalDate startDate, LocalDate endDate) {
+        Object[] args = new Object[parameters.size()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = parameters.get(i).valueFor(startDate, endDate);
+        }
+        return args;
+    }
+}
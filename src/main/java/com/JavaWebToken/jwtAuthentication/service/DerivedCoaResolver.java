@@ -0,0 +1,211 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import com.JavaWebToken.jwtAuthentication.dto.CellMappingDTO;
+import com.JavaWebToken.jwtAuthentication.repository.ReportJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+
+/**
+ * Evaluates derived COAs in memory. References to COAs that are not already part of the run are loaded
+ * and their SQL scheduled once through the request memo; each derived COA then completes as soon as the
+ * COAs it references have, which evaluates the dependency graph in topological order without extra queries.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DerivedCoaResolver {
+
+    private final ReportJdbcRepository reportRepository;
+
+    /**
+     * @param derived derived COAs whose memo slot the caller owns, for one period
+     * @param known   slots of every COA already in the run for the same period, by COA code; extended in place
+     * @param runBase schedules a SQL COA pulled in only because a formula references it
+     */
+    public void resolve(List<DerivedSlot> derived,
+                        Map<String, CompletableFuture<Object>> known,
+                        LocalDate startDate,
+                        LocalDate endDate,
+                        CoaResultMemo memo,
+                        BiConsumer<CellMappingDTO, CompletableFuture<Object>> runBase) {
+        if (derived.isEmpty()) {
+            return;
+        }
+
+        Map<String, CoaFormula> formulas = new LinkedHashMap<>();
+        Map<String, CompletableFuture<Object>> owned = new LinkedHashMap<>();
+        Deque<String> unresolved = new ArrayDeque<>();
+        for (DerivedSlot slot : derived) {
+            known.putIfAbsent(slot.mapping().getCoaCode(), slot.value());
+            addFormula(slot.mapping(), slot.value(), formulas, owned, unresolved);
+        }
+
+        // Pull in referenced COAs that are not on the sheet, level by level
+        while (!unresolved.isEmpty()) {
+            Set<String> missing = new LinkedHashSet<>();
+            while (!unresolved.isEmpty()) {
+                String code = unresolved.poll();
+                if (!known.containsKey(code)) {
+                    missing.add(code);
+                }
+            }
+            if (missing.isEmpty()) {
+                break;
+            }
+
+            for (CellMappingDTO definition : reportRepository.getCoaDefinitionsByCodes(missing)) {
+                if (!missing.remove(definition.getCoaCode())) {
+                    continue;
+                }
+                CoaResultMemo.Slot slot = memo.slot(definition, startDate, endDate);
+                known.put(definition.getCoaCode(), slot.value());
+                if (!slot.owner()) {
+                    continue;
+                }
+                if (definition.isDerived()) {
+                    addFormula(definition, slot.value(), formulas, owned, unresolved);
+                } else {
+                    runBase.accept(definition, slot.value());
+                }
+            }
+            for (String code : missing) {
+                known.put(code, CompletableFuture.completedFuture("ERROR: Unknown COA [" + code + "]"));
+            }
+        }
+
+        Set<String> cyclic = findCycles(formulas);
+        for (Map.Entry<String, CoaFormula> entry : formulas.entrySet()) {
+            CompletableFuture<Object> slot = owned.get(entry.getKey());
+            if (cyclic.contains(entry.getKey())) {
+                slot.complete("ERROR: Circular reference in formula of [" + entry.getKey() + "]");
+                continue;
+            }
+
+            CoaFormula formula = entry.getValue();
+            Map<String, CompletableFuture<Object>> inputs = new HashMap<>();
+            for (String reference : formula.references()) {
+                inputs.put(reference, known.get(reference));
+            }
+            Map<String, CompletableFuture<Object>> frozenInputs = Map.copyOf(inputs);
+            CompletableFuture.allOf(frozenInputs.values().toArray(CompletableFuture[]::new))
+                    .whenComplete((ignored, error) -> slot.complete(evaluate(formula, frozenInputs)));
+        }
+
+        log.debug("Resolved {} derived COAs for {} to {}", formulas.size(), startDate, endDate);
+    }
+
+    private static void addFormula(CellMappingDTO mapping,
+                                   CompletableFuture<Object> slot,
+                                   Map<String, CoaFormula> formulas,
+                                   Map<String, CompletableFuture<Object>> owned,
+                                   Deque<String> unresolved) {
+        try {
+            CoaFormula formula = CoaFormula.parse(mapping.getFormula());
+            formulas.put(mapping.getCoaCode(), formula);
+            owned.put(mapping.getCoaCode(), slot);
+            unresolved.addAll(formula.references());
+        } catch (CoaFormulaException e) {
+            slot.complete("ERROR: Invalid formula - " + e.getMessage());
+        }
+    }
+
+    private static Object evaluate(CoaFormula formula, Map<String, CompletableFuture<Object>> inputs) {
+        try {
+            return formula.evaluate(code -> toDecimal(code, inputs.get(code)));
+        } catch (FailedInput e) {
+            return e.value;
+        } catch (ArithmeticException e) {
+            return "ERROR: " + e.getMessage();
+        }
+    }
+
+    // A failed input fails the derived COA; a timed-out input makes it time out too
+    private static BigDecimal toDecimal(String code, CompletableFuture<Object> input) {
+        Object value;
+        try {
+            value = input.join();
+        } catch (CompletionException e) {
+            throw new FailedInput("ERROR: [" + code + "] failed");
+        }
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        if (value instanceof Number number) {
+            return new BigDecimal(number.toString());
+        }
+        if (ReportDeadline.TIMEOUT.equals(value)) {
+            throw new FailedInput(ReportDeadline.TIMEOUT);
+        }
+        if (value instanceof String text && !text.startsWith("ERROR:")) {
+            try {
+                return new BigDecimal(text.trim());
+            } catch (NumberFormatException ignored) {
+                // reported below
+            }
+        }
+        throw new FailedInput(value instanceof String text && text.startsWith("ERROR:")
+                ? "ERROR: [" + code + "] failed"
+                : "ERROR: [" + code + "] is not numeric");
+    }
+
+    // Codes that lie on a reference cycle among the given formulas
+    static Set<String> findCycles(Map<String, CoaFormula> formulas) {
+        Set<String> cyclic = new HashSet<>();
+        Map<String, Integer> state = new HashMap<>(); // 1 = on the current path, 2 = done
+        Deque<String> path = new ArrayDeque<>();
+        for (String code : formulas.keySet()) {
+            visit(code, formulas, state, path, cyclic);
+        }
+        return cyclic;
+    }
+
+    private static void visit(String code, Map<String, CoaFormula> formulas, Map<String, Integer> state,
+                              Deque<String> path, Set<String> cyclic) {
+        Integer current = state.get(code);
+        if (current != null) {
+            if (current == 1) {
+                // Everything on the path from the first visit of code back to here is on the cycle
+                for (Iterator<String> it = path.iterator(); it.hasNext(); ) {
+                    String member = it.next();
+                    cyclic.add(member);
+                    if (member.equals(code)) break;
+                }
+            }
+            return;
+        }
+        CoaFormula formula = formulas.get(code);
+        if (formula == null) {
+            return;
+        }
+        state.put(code, 1);
+        path.push(code);
+        for (String reference : formula.references()) {
+            visit(reference, formulas, state, path, cyclic);
+        }
+        path.pop();
+        state.put(code, 2);
+    }
+
+    public record DerivedSlot(CellMappingDTO mapping, CompletableFuture<Object> value) {
+    }
+
+    private static final class FailedInput extends RuntimeException {
+        private final Object value;
+
+        private FailedInput(Object value) {
+            super(null, null, false, false);
+            this.value = value;
+        }
+    }
+}
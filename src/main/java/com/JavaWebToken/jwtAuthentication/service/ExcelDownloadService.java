@@ -25,9 +25,15 @@ public class ExcelDownloadService {
     private String uploadBaseDir;
 
     private final UploadedFileRepository uploadedFileRepository;
+    private final ExcelTemplateCache templateCache;
+    private final ExcelFormulaRecalculator formulaRecalculator;
 
-    public ExcelDownloadService(UploadedFileRepository uploadedFileRepository) {
+    public ExcelDownloadService(UploadedFileRepository uploadedFileRepository,
+                                ExcelTemplateCache templateCache,
+                                ExcelFormulaRecalculator formulaRecalculator) {
         this.uploadedFileRepository = uploadedFileRepository;
+        this.templateCache = templateCache;
+        this.formulaRecalculator = formulaRecalculator;
     }
 
     public String processExcelUpload(MultipartFile excelFile) throws IOException {
@@ -100,6 +106,8 @@ public class ExcelDownloadService {
         if (Files.exists(filePath)) {
             Files.delete(filePath);
         }
+        templateCache.invalidate(fileRecord.getFilePath());
+        formulaRecalculator.invalidate(fileRecord.getFilePath());
 
         // Delete from DB
         uploadedFileRepository.delete(fileRecord);
@@ -0,0 +1,263 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.hssf.usermodel.HSSFEvaluationWorkbook;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.EvaluationName;
+import org.apache.poi.ss.formula.EvaluationWorkbook;
+import org.apache.poi.ss.formula.ExternSheetReferenceToken;
+import org.apache.poi.ss.formula.FormulaParser;
+import org.apache.poi.ss.formula.FormulaParsingWorkbook;
+import org.apache.poi.ss.formula.FormulaType;
+import org.apache.poi.ss.formula.ptg.*;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Recalculates only the template formulas that depend, directly or through other formulas, on the cells
+ * a report wrote, so files read without Excel carry current values instead of the template's cached ones.
+ *
+ * <p>The reverse dependency index (cell to the formulas reading it) is built once per template and reused
+ * while the template file is unchanged. Formulas using INDIRECT or OFFSET cannot be indexed and are
+ * recalculated whenever anything was written. At most {@code report.formula-index-cache.max-entries} indexes
+ * are kept, least recently used evicted first, and a template's index is dropped when the template is deleted.</p>
+ */
+@Component
+@Slf4j
+public class ExcelFormulaRecalculator {
+
+    private static final Set<String> VOLATILE_REFERENCE_FUNCTIONS = Set.of("INDIRECT", "OFFSET");
+
+    private final ExcelTemplateCache templateCache;
+
+    private final Cache<String, CachedIndex> indexes;
+
+    public ExcelFormulaRecalculator(ExcelTemplateCache templateCache,
+                                    @Value("${report.formula-index-cache.max-entries:64}") long maxEntries) {
+        this.templateCache = templateCache;
+        this.indexes = Caffeine.newBuilder().maximumSize(maxEntries).build();
+    }
+
+    public void invalidate(String filePath) {
+        if (filePath != null) {
+            indexes.invalidate(Paths.get(filePath).toAbsolutePath().normalize().toString());
+        }
+    }
+
+    /**
+     * @param written cell references written per sheet of {@code workbook}, which was opened from {@code template}
+     * @return the number of formula cells recalculated
+     */
+    public int recalculate(File template, Workbook workbook, Map<Sheet, ? extends Collection<String>> written)
+            throws IOException {
+        DependencyIndex index = index(template);
+        if (index.isEmpty()) {
+            return 0;
+        }
+
+        Deque<CellKey> queue = new ArrayDeque<>();
+        for (Map.Entry<Sheet, ? extends Collection<String>> entry : written.entrySet()) {
+            int sheetIndex = workbook.getSheetIndex(entry.getKey());
+            for (String cellRef : entry.getValue()) {
+                try {
+                    CellReference ref = new CellReference(cellRef.toUpperCase());
+                    queue.add(new CellKey(sheetIndex, ref.getRow(), ref.getCol()));
+                } catch (IllegalArgumentException e) {
+                    // invalid references were not written either
+                }
+            }
+        }
+        if (queue.isEmpty()) {
+            return 0;
+        }
+
+        Set<CellKey> dirty = new LinkedHashSet<>(index.volatileCells());
+        queue.addAll(index.volatileCells());
+        while (!queue.isEmpty()) {
+            for (CellKey dependent : index.dependentsOf(queue.poll())) {
+                if (dirty.add(dependent)) {
+                    queue.add(dependent);
+                }
+            }
+        }
+
+        // One evaluator for the whole pass, so a formula shared by several dirty cells is computed once
+        FormulaEvaluator evaluator = workbook.getCreationHelper().createFormulaEvaluator();
+        int recalculated = 0;
+        for (CellKey key : dirty) {
+            Row row = workbook.getSheetAt(key.sheet()).getRow(key.row());
+            Cell cell = row != null ? row.getCell(key.col()) : null;
+            // A report value may have replaced the template formula in this cell
+            if (cell == null || cell.getCellType() != CellType.FORMULA) {
+                continue;
+            }
+            try {
+                evaluator.evaluateFormulaCell(cell);
+                recalculated++;
+            } catch (RuntimeException e) {
+                log.debug("Could not recalculate {}!{}: {}", workbook.getSheetName(key.sheet()),
+                        new CellReference(key.row(), key.col()).formatAsString(), e.getMessage());
+            }
+        }
+
+        log.info("Recalculated {} of {} template formulas in {}", recalculated, index.formulaCount(), template.getName());
+        return recalculated;
+    }
+
+    private DependencyIndex index(File template) throws IOException {
+        ExcelTemplateCache.CachedTemplate source = templateCache.get(template);
+        CachedIndex cached = indexes.getIfPresent(source.path());
+        if (cached != null && cached.lastModified() == source.lastModified() && cached.size() == source.size()) {
+            return cached.index();
+        }
+
+        // Built from a pristine copy: the caller's workbook already has formula cells overwritten by values
+        DependencyIndex index;
+        try (Workbook workbook = templateCache.open(template)) {
+            index = buildIndex(workbook);
+        }
+        indexes.put(source.path(), new CachedIndex(source.lastModified(), source.size(), index));
+        log.info("Indexed {} formulas of template {}", index.formulaCount(), template.getName());
+        return index;
+    }
+
+    private static DependencyIndex buildIndex(Workbook workbook) {
+        EvaluationWorkbook evaluationWorkbook;
+        if (workbook instanceof XSSFWorkbook xssf) {
+            evaluationWorkbook = XSSFEvaluationWorkbook.create(xssf);
+        } else if (workbook instanceof HSSFWorkbook hssf) {
+            evaluationWorkbook = HSSFEvaluationWorkbook.create(hssf);
+        } else {
+            return DependencyIndex.EMPTY;
+        }
+
+        DependencyIndex index = new DependencyIndex();
+        for (int sheetIndex = 0; sheetIndex < workbook.getNumberOfSheets(); sheetIndex++) {
+            for (Row row : workbook.getSheetAt(sheetIndex)) {
+                for (Cell cell : row) {
+                    if (cell.getCellType() != CellType.FORMULA) {
+                        continue;
+                    }
+                    CellKey formulaCell = new CellKey(sheetIndex, cell.getRowIndex(), cell.getColumnIndex());
+                    try {
+                        Ptg[] tokens = FormulaParser.parse(cell.getCellFormula(), (FormulaParsingWorkbook) evaluationWorkbook,
+                                FormulaType.CELL, sheetIndex, cell.getRowIndex());
+                        index.addFormula(formulaCell, tokens, sheetIndex, evaluationWorkbook);
+                        index.formulaCount++;
+                    } catch (RuntimeException e) {
+                        // Unparseable formulas are left to Excel
+                        log.debug("Skipping formula in {}!{}: {}", workbook.getSheetName(sheetIndex),
+                                cell.getAddress(), e.getMessage());
+                    }
+                }
+            }
+        }
+        return index;
+    }
+
+    private record CachedIndex(long lastModified, long size, DependencyIndex index) {
+    }
+
+    private record CellKey(int sheet, int row, int col) {
+    }
+
+    private record Area(int sheet, int firstRow, int lastRow, int firstCol, int lastCol, CellKey dependent) {
+
+        boolean contains(CellKey cell) {
+            return cell.sheet() == sheet && cell.row() >= firstRow && cell.row() <= lastRow
+                    && cell.col() >= firstCol && cell.col() <= lastCol;
+        }
+    }
+
+    /**
+     * Reverse dependencies: single-cell references are looked up directly, ranges are scanned per sheet.
+     * Immutable once built, so it is shared between concurrent reports.
+     */
+    private static final class DependencyIndex {
+
+        static final DependencyIndex EMPTY = new DependencyIndex();
+
+        private final Map<CellKey, List<CellKey>> cellDependents = new HashMap<>();
+        private final Map<Integer, List<Area>> areaDependents = new HashMap<>();
+        private final List<CellKey> volatileCells = new ArrayList<>();
+        private int formulaCount;
+
+        boolean isEmpty() {
+            return formulaCount == 0;
+        }
+
+        int formulaCount() {
+            return formulaCount;
+        }
+
+        List<CellKey> volatileCells() {
+            return volatileCells;
+        }
+
+        Set<CellKey> dependentsOf(CellKey cell) {
+            Set<CellKey> dependents = new LinkedHashSet<>(cellDependents.getOrDefault(cell, List.of()));
+            for (Area area : areaDependents.getOrDefault(cell.sheet(), List.of())) {
+                if (area.contains(cell)) {
+                    dependents.add(area.dependent());
+                }
+            }
+            return dependents;
+        }
+
+        void addFormula(CellKey formulaCell, Ptg[] tokens, int sheetIndex, EvaluationWorkbook workbook) {
+            for (Ptg token : tokens) {
+                if (token instanceof AbstractFunctionPtg function
+                        && VOLATILE_REFERENCE_FUNCTIONS.contains(function.getName())) {
+                    volatileCells.add(formulaCell);
+                } else if (token instanceof NamePtg namePtg) {
+                    // Defined names are expanded one level; names defined over other names are rare in templates
+                    EvaluationName name = workbook.getName(namePtg);
+                    if (name != null && !name.isFunctionName() && name.getNameDefinition() != null) {
+                        addFormula(formulaCell, name.getNameDefinition(), sheetIndex, workbook);
+                    }
+                } else if (token instanceof RefPtgBase ref && !(token instanceof RefErrorPtg)) {
+                    int sheet = referencedSheet(token, sheetIndex, workbook);
+                    if (sheet >= 0) {
+                        cellDependents.computeIfAbsent(new CellKey(sheet, ref.getRow(), ref.getColumn()),
+                                key -> new ArrayList<>()).add(formulaCell);
+                    }
+                } else if (token instanceof AreaPtgBase area && !(token instanceof AreaErrPtg)) {
+                    int sheet = referencedSheet(token, sheetIndex, workbook);
+                    if (sheet >= 0) {
+                        areaDependents.computeIfAbsent(sheet, key -> new ArrayList<>()).add(new Area(sheet,
+                                area.getFirstRow(), area.getLastRow(), area.getFirstColumn(), area.getLastColumn(),
+                                formulaCell));
+                    }
+                }
+            }
+        }
+
+        // Sheet a reference points at, or -1 for references into other workbooks
+        private static int referencedSheet(Ptg token, int currentSheet, EvaluationWorkbook workbook) {
+            if (token instanceof Pxg pxg) {
+                if (pxg.getExternalWorkbookNumber() > 0) {
+                    return -1;
+                }
+                return pxg.getSheetName() != null ? workbook.getSheetIndex(pxg.getSheetName()) : currentSheet;
+            }
+            if (token instanceof ExternSheetReferenceToken external) {
+                if (workbook.getExternalSheet(external.getExternSheetIndex()) != null) {
+                    return -1;
+                }
+                return workbook.convertFromExternSheetIndex(external.getExternSheetIndex());
+            }
+            return currentSheet;
+        }
+    }
+}
@@ -1,26 +1,51 @@
 package com.JavaWebToken.jwtAuthentication.service;
 
+import com.JavaWebToken.jwtAuthentication.config.CacheConfig;
 import com.JavaWebToken.jwtAuthentication.dto.CellMappingDTO;
+import com.JavaWebToken.jwtAuthentication.dto.ReportPeriodDTO;
+import com.JavaWebToken.jwtAuthentication.dto.ReportSeriesDTO;
+import com.JavaWebToken.jwtAuthentication.entity.CoaRowReducer;
+import com.JavaWebToken.jwtAuthentication.entity.CoaScriptDescriptor;
 import com.JavaWebToken.jwtAuthentication.entity.UploadedFile;
 import com.JavaWebToken.jwtAuthentication.repository.UploadedFileRepository;
 import com.JavaWebToken.jwtAuthentication.repository.ReportJdbcRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellReference;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.*;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Date;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 @Service
 @RequiredArgsConstructor
@@ -29,11 +54,50 @@ public class ExcelReportService {
 
     private final ReportJdbcRepository reportRepository;
     private final UploadedFileRepository uploadedFileRepository;
+    @Qualifier("reportJdbcTemplate")
     private final JdbcTemplate jdbcTemplate;
+    private final SheetQueryPlanner queryPlanner;
+    private final SeriesQueryPlanner seriesPlanner;
+    private final CoaStatementRunner statementRunner;
+    private final LedgerRollupService rollupService;
+    private final PeriodFreezeService freezeService;
+    private final DerivedCoaResolver derivedResolver;
+    private final CoaSqlCompiler sqlCompiler;
+    private final ExcelTemplateCache templateCache;
+    private final ExcelFormulaRecalculator formulaRecalculator;
+    private final ReportMetrics reportMetrics;
+    private final CoaQueryProfiler queryProfiler;
+    private final CacheManager cacheManager;
+    @Qualifier("reportQueryExecutor")
+    private final ExecutorService reportQueryExecutor;
 
     @Value("${upload.dir:${user.home}/excel-uploads}")
     private String uploadDir;
 
+    @Value("${report.sql.parallelism:4}")
+    private int parallelism;
+
+    @Value("${report.excel.timeout-seconds:300}")
+    private int reportTimeoutSeconds;
+
+    @Value("${report.cache.enabled:true}")
+    private boolean reportCacheEnabled;
+
+    @Value("${report.excel.number-format:#,##0.00}")
+    private String numberFormat;
+
+    @Value("${report.excel.recalculate-formulas:false}")
+    private boolean recalculateFormulas;
+
+    @Value("${report.export.concurrency:2}")
+    private int exportConcurrency;
+
+    @Value("${report.coalesce.enabled:true}")
+    private boolean coalesceRequests;
+
+    // Report computations currently running, by the same key as the report data cache
+    private final Map<String, CompletableFuture<Map<String, Object>>> inFlightReports = new ConcurrentHashMap<>();
+
     @Transactional(readOnly = true)
     public List<String> getAllSheetNames() {
         try {
@@ -64,7 +128,7 @@ public class ExcelReportService {
         log.info("Fetching mappings for exact sheet name: {}", sheetName);
         try {
             // Query with EXACT sheet name from excel_sheets table
-            List<CellMappingDTO> mappings = reportRepository.getCellMappings(sheetName);
+            List<CellMappingDTO> mappings = reportMetrics.timeMappingLookup(() -> reportRepository.getCellMappings(sheetName));
 
             log.info("Found {} mappings for sheet: {}", mappings.size(), sheetName);
             return mappings;
@@ -79,69 +143,674 @@ public class ExcelReportService {
     public List<CellMappingDTO> getMappingsForSheetId(Long sheetId) {
         log.info("Fetching mappings for sheet ID: {}", sheetId);
         try {
-            return reportRepository.getCellMappingsBySheetId(sheetId);
+            return reportMetrics.timeMappingLookup(() -> reportRepository.getCellMappingsBySheetId(sheetId));
         } catch (Exception e) {
             log.error("Error fetching mappings for sheet ID {}: {}", sheetId, e.getMessage(), e);
             return Collections.emptyList();
         }
     }
 
-    @Transactional
+    // Not transactional on purpose: the COA scripts run on reportQueryExecutor workers with their
+    // own connections, so the request thread must not pin an extra one for the whole report.
     public Map<String, Object> generateReportData(String sheetName,
                                                   LocalDate startDate,
                                                   LocalDate endDate) {
+        return generateReportData(sheetName, startDate, endDate, ReportProgressListener.NONE);
+    }
+
+    public Map<String, Object> generateReportData(String sheetName,
+                                                  LocalDate startDate,
+                                                  LocalDate endDate,
+                                                  ReportProgressListener listener) {
+        return generateReportData(sheetName, startDate, endDate, listener, new CoaResultMemo());
+    }
+
+    // Callers generating several sheets for one request pass the same memo so shared COAs run once
+    public Map<String, Object> generateReportData(String sheetName,
+                                                  LocalDate startDate,
+                                                  LocalDate endDate,
+                                                  ReportProgressListener listener,
+                                                  CoaResultMemo memo) {
         // Use EXACT sheet name as it appears in excel_sheets table
         log.info("Generating data for exact sheet: {}, period: {} to {}",
                 sheetName, startDate, endDate);
 
         List<CellMappingDTO> mappings = getMappingsForSheet(sheetName);
-        Map<String, Object> cellValues = new LinkedHashMap<>();
 
         if (mappings.isEmpty()) {
             log.warn("No mappings found for sheet: {}", sheetName);
+            return new LinkedHashMap<>();
+        }
+
+        Cache cache = reportCacheEnabled ? cacheManager.getCache(CacheConfig.REPORT_DATA_CACHE) : null;
+        String cacheKey = sheetName + "|" + startDate + "|" + endDate + "|" + definitionFingerprint(mappings);
+        if (cache != null) {
+            Cache.ValueWrapper cached = cache.get(cacheKey);
+            if (cached != null) {
+                log.info("Serving cached data for sheet: {}, period: {} to {}", sheetName, startDate, endDate);
+                @SuppressWarnings("unchecked")
+                Map<String, Object> cachedValues = (Map<String, Object>) cached.get();
+                listener.started(cachedValues.size());
+                cachedValues.forEach(listener::cellCompleted);
+                return new LinkedHashMap<>(cachedValues);
+            }
+        }
+
+        // Identical requests arriving while this one runs wait for its result instead of re-running it
+        CompletableFuture<Map<String, Object>> flight = null;
+        if (coalesceRequests) {
+            CompletableFuture<Map<String, Object>> created = new CompletableFuture<>();
+            CompletableFuture<Map<String, Object>> running = inFlightReports.putIfAbsent(cacheKey, created);
+            if (running != null) {
+                log.info("Joining in-flight computation for sheet: {}, period: {} to {}", sheetName, startDate, endDate);
+                Map<String, Object> shared = awaitInFlight(running);
+                listener.started(shared.size());
+                shared.forEach(listener::cellCompleted);
+                return new LinkedHashMap<>(shared);
+            }
+            flight = created;
+        }
+
+        try {
+            Map<String, Object> cellValues = computeReportData(sheetName, mappings, startDate, endDate, listener, memo);
+
+            // Failed cells are worth retrying, so only fully successful runs are cached
+            if (cache != null && !hasErrorValues(cellValues)) {
+                cache.put(cacheKey, Collections.unmodifiableMap(new LinkedHashMap<>(cellValues)));
+            }
+            if (flight != null) {
+                flight.complete(Collections.unmodifiableMap(new LinkedHashMap<>(cellValues)));
+            }
             return cellValues;
+        } catch (RuntimeException | Error e) {
+            if (flight != null) {
+                flight.completeExceptionally(e);
+            }
+            throw e;
+        } finally {
+            if (flight != null) {
+                inFlightReports.remove(cacheKey, flight);
+            }
+        }
+    }
+
+    // The leader always finishes, at the latest when its own deadline passes, so this wait is bounded
+    private static Map<String, Object> awaitInFlight(CompletableFuture<Map<String, Object>> running) {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an identical report", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Identical report failed: " + cause.getMessage(), cause);
         }
+    }
 
-        log.info("Generating data for {} mappings for sheet: {}",
-                mappings.size(), sheetName);
+    private Map<String, Object> computeReportData(String sheetName,
+                                                  List<CellMappingDTO> mappings,
+                                                  LocalDate startDate,
+                                                  LocalDate endDate,
+                                                  ReportProgressListener listener,
+                                                  CoaResultMemo memo) {
+        log.info("Generating data for {} mappings for sheet: {} (parallelism {})",
+                mappings.size(), sheetName, parallelism);
+
+        reportMetrics.reportStarted();
+        try {
+            ReportDeadline deadline = newDeadline();
+            List<CellResult> results = evaluateMappings(mappings, startDate, endDate, listener, memo, deadline);
+
+            // Results are in mapping order, so cellValues keeps its layout
+            Map<String, Object> cellValues = new LinkedHashMap<>();
+            for (CellResult result : results) {
+                cellValues.put(result.mapping().getTargetCell(), awaitValue(result.value(), result.mapping().getTargetCell(), deadline));
+            }
+
+            log.info("✅ Generated {} cell values for sheet: {}", cellValues.size(), sheetName);
+            return cellValues;
+        } finally {
+            reportMetrics.reportFinished();
+        }
+    }
+
+    /**
+     * Starts evaluation of every mapping with a target cell and returns one pending result per mapping,
+     * in mapping order. Each distinct (COA, period) of the request is executed once through the memo and
+     * its value fanned out to all of its cells, including cells of other sheets sharing the memo.
+     * For closed periods, frozen COA values are used as they are and newly computed ones are frozen.
+     */
+    private List<CellResult> evaluateMappings(List<CellMappingDTO> mappings,
+                                              LocalDate startDate,
+                                              LocalDate endDate,
+                                              ReportProgressListener listener,
+                                              CoaResultMemo memo,
+                                              ReportDeadline deadline) {
+        List<CellResult> results = new ArrayList<>(mappings.size());
+        List<PreparedCoaQuery> queries = new ArrayList<>();
+        Map<PreparedCoaQuery, CompletableFuture<Object>> slots = new IdentityHashMap<>();
+        List<DerivedCoaResolver.DerivedSlot> derived = new ArrayList<>();
+        Map<String, CompletableFuture<Object>> known = new HashMap<>();
+        long hitsBefore = memo.hits();
+        boolean closed = freezeService.isClosed(startDate, endDate);
+        Map<Long, Object> frozen = closed ? freezeService.loadFrozen(mappings, startDate, endDate) : Map.of();
 
         for (CellMappingDTO mapping : mappings) {
+            if (mapping.getTargetCell() == null || mapping.getTargetCell().trim().isEmpty()) {
+                log.warn("Skipping mapping {} - no target cell defined", mapping.getMappingId());
+                reportMetrics.mappingSkipped("no_target_cell");
+                continue;
+            }
+
+            if (!mapping.isDerived() && (mapping.getSqlScript() == null || mapping.getSqlScript().trim().isEmpty())) {
+                log.warn("Skipping mapping {} - no SQL script defined", mapping.getMappingId());
+                reportMetrics.mappingSkipped("no_sql");
+                results.add(new CellResult(mapping, CompletableFuture.completedFuture("NO_SQL")));
+                continue;
+            }
+
+            CoaResultMemo.Slot memoSlot = memo.slot(mapping, startDate, endDate);
+            CompletableFuture<Object> slot = memoSlot.value();
+            results.add(new CellResult(mapping, slot));
+            if (mapping.getCoaCode() != null) {
+                known.putIfAbsent(mapping.getCoaCode(), slot);
+            }
+            if (!memoSlot.owner()) {
+                continue;
+            }
+            // Derived COAs are never frozen; they are re-evaluated from their (frozen) inputs
+            if (mapping.isDerived()) {
+                derived.add(new DerivedCoaResolver.DerivedSlot(mapping, slot));
+                continue;
+            }
+            if (mapping.getCoaId() != null && frozen.containsKey(mapping.getCoaId())) {
+                slot.complete(frozen.get(mapping.getCoaId()));
+                continue;
+            }
+            if (closed) {
+                slot.thenAccept(value -> freezeService.freeze(mapping, startDate, endDate, value));
+            }
+
             try {
-                if (mapping.getTargetCell() == null || mapping.getTargetCell().trim().isEmpty()) {
-                    log.warn("Skipping mapping {} - no target cell defined", mapping.getMappingId());
-                    continue;
-                }
+                PreparedCoaQuery query = prepareQuery(mapping, startDate, endDate);
+                queries.add(query);
+                slots.put(query, slot);
+            } catch (Exception e) {
+                log.error("❌ Error compiling SQL for cell {}: {}", mapping.getTargetCell(), e.getMessage());
+                slot.complete("ERROR: " + e.getMessage());
+            }
+        }
 
-                if (mapping.getSqlScript() == null || mapping.getSqlScript().trim().isEmpty()) {
-                    log.warn("Skipping mapping {} - no SQL script defined", mapping.getMappingId());
-                    cellValues.put(mapping.getTargetCell(), "NO_SQL");
-                    continue;
+        // Referenced COAs missing from the sheet join the same plan, so they fuse with the sheet's own statements
+        derivedResolver.resolve(derived, known, startDate, endDate, memo, (definition, slot) -> {
+            if (closed && completeFromFrozen(definition, startDate, endDate, slot)) {
+                return;
+            }
+            try {
+                PreparedCoaQuery query = prepareQuery(definition, startDate, endDate);
+                queries.add(query);
+                slots.put(query, slot);
+            } catch (Exception e) {
+                log.error("❌ Error compiling SQL for referenced COA {}: {}", definition.getCoaCode(), e.getMessage());
+                slot.complete("ERROR: " + e.getMessage());
+            }
+        });
+
+        listener.started(results.size());
+        for (CellResult result : results) {
+            result.value().whenComplete((value, error) -> listener.cellCompleted(result.mapping().getTargetCell(),
+                    error == null ? value : "ERROR: " + error.getMessage()));
+        }
+
+        SheetQueryPlanner.Plan plan = queryPlanner.plan(queries);
+        log.info("Executing {} cells ({} new COA results, {} memo hits, {} frozen) as {} fused and {} single statements",
+                results.size(), queries.size(), memo.hits() - hitsBefore, frozen.size(),
+                plan.fused().size(), plan.singles().size());
+
+        for (SheetQueryPlanner.FusedQuery fused : plan.fused()) {
+            dispatch(deadline, () -> {
+                List<Object> values = executeFused(fused, deadline);
+                for (int i = 0; i < fused.members().size(); i++) {
+                    slots.get(fused.members().get(i)).complete(values.get(i));
                 }
+            }, fused.members().stream().map(slots::get).toList());
+        }
+        for (PreparedCoaQuery single : plan.singles()) {
+            dispatch(deadline, () -> slots.get(single).complete(evaluateQuery(single, deadline)), List.of(slots.get(single)));
+        }
+
+        return results;
+    }
+
+    private ReportDeadline newDeadline() {
+        return ReportDeadline.after(Duration.ofSeconds(reportTimeoutSeconds));
+    }
 
-                String executableSql = prepareSql(mapping.getSqlScript(), startDate, endDate);
-                log.debug("Executing SQL for cell {}: {}", mapping.getTargetCell(),
-                        executableSql.substring(0, Math.min(100, executableSql.length())) + "...");
+    private Object awaitValue(CompletableFuture<Object> value, String targetCell, ReportDeadline deadline) {
+        Object resolved = awaitCell(value, targetCell, deadline);
+        reportMetrics.cellResolved(resolved);
+        return resolved;
+    }
+
+    // Waits for the cell within the run's deadline; once it passes, running statements are cancelled
+    // and every cell still outstanding resolves to TIMEOUT
+    private Object awaitCell(CompletableFuture<Object> value, String targetCell, ReportDeadline deadline) {
+        try {
+            return value.get(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            deadline.expire();
+            value.complete(ReportDeadline.TIMEOUT);
+            return value.getNow(ReportDeadline.TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            deadline.expire();
+            return ReportDeadline.TIMEOUT;
+        } catch (ExecutionException | CancellationException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.error("❌ Error processing cell {}: {}", targetCell, cause.getMessage());
+            return "ERROR: " + cause.getMessage();
+        }
+    }
+
+    private record CellResult(CellMappingDTO mapping, CompletableFuture<Object> value) {
+    }
+
+    /**
+     * Computes a sheet for several periods at once. Each distinct COA is planned into a single statement
+     * returning one value per period where its script shape allows it (see {@link SeriesQueryPlanner}),
+     * otherwise its periods run in parallel, so statement count scales with COAs rather than COAs x periods.
+     */
+    public ReportSeriesDTO generateSeriesData(String sheetName, List<ReportPeriodDTO> periods) {
+        validatePeriods(periods);
+        reportMetrics.reportStarted();
+        try {
+            return computeSeriesData(sheetName, periods);
+        } finally {
+            reportMetrics.reportFinished();
+        }
+    }
+
+    // For a referenced COA of a closed period: uses its frozen value, or freezes the one computed now
+    private boolean completeFromFrozen(CellMappingDTO definition, LocalDate startDate, LocalDate endDate,
+                                       CompletableFuture<Object> slot) {
+        Map<Long, Object> frozen = freezeService.loadFrozen(List.of(definition), startDate, endDate);
+        if (definition.getCoaId() != null && frozen.containsKey(definition.getCoaId())) {
+            slot.complete(frozen.get(definition.getCoaId()));
+            return true;
+        }
+        slot.thenAccept(value -> freezeService.freeze(definition, startDate, endDate, value));
+        return false;
+    }
 
-                Object result = executeSql(executableSql, startDate, endDate);
-                cellValues.put(mapping.getTargetCell(), result);
+    private ReportSeriesDTO computeSeriesData(String sheetName, List<ReportPeriodDTO> periods) {
+        List<CellMappingDTO> mappings = reportMetrics.timeMappingLookup(() -> reportRepository.getCellMappings(sheetName));
+        log.info("Generating series data for {} mappings x {} periods for sheet: {}",
+                mappings.size(), periods.size(), sheetName);
+
+        CoaResultMemo memo = new CoaResultMemo();
+        ReportDeadline deadline = newDeadline();
+        Map<String, List<CompletableFuture<Object>>> pending = new LinkedHashMap<>();
+        List<Map<Long, Object>> frozenByPeriod = periods.stream()
+                .map(period -> freezeService.isClosed(period.getStartDate(), period.getEndDate())
+                        ? freezeService.loadFrozen(mappings, period.getStartDate(), period.getEndDate())
+                        : Map.<Long, Object>of())
+                .toList();
+        List<List<DerivedCoaResolver.DerivedSlot>> derivedByPeriod = new ArrayList<>(periods.size());
+        List<Map<String, CompletableFuture<Object>>> knownByPeriod = new ArrayList<>(periods.size());
+        for (int i = 0; i < periods.size(); i++) {
+            derivedByPeriod.add(new ArrayList<>());
+            knownByPeriod.add(new HashMap<>());
+        }
+        int statements = 0;
+        int bucketed = 0;
+
+        for (CellMappingDTO mapping : mappings) {
+            if (mapping.getTargetCell() == null || mapping.getTargetCell().trim().isEmpty()) {
+                reportMetrics.mappingSkipped("no_target_cell");
+                continue;
+            }
+            if (!mapping.isDerived() && (mapping.getSqlScript() == null || mapping.getSqlScript().trim().isEmpty())) {
+                reportMetrics.mappingSkipped("no_sql");
+                pending.put(mapping.getTargetCell(), completedSeries(periods.size(), "NO_SQL"));
+                continue;
+            }
+            // Periods already owned elsewhere in the request (e.g. a repeated period) are shared, not re-run
+            List<CompletableFuture<Object>> slots = new ArrayList<>(periods.size());
+            List<Integer> owned = new ArrayList<>(periods.size());
+            for (int i = 0; i < periods.size(); i++) {
+                CoaResultMemo.Slot memoSlot = memo.slot(mapping, periods.get(i).getStartDate(), periods.get(i).getEndDate());
+                slots.add(memoSlot.value());
+                if (memoSlot.owner()) owned.add(i);
+            }
+            pending.put(mapping.getTargetCell(), slots);
+            if (mapping.getCoaCode() != null) {
+                for (int i = 0; i < periods.size(); i++) {
+                    knownByPeriod.get(i).putIfAbsent(mapping.getCoaCode(), slots.get(i));
+                }
+            }
 
-                log.debug("✅ Cell {} [{}] = {}", mapping.getTargetCell(),
-                        mapping.getCoaName(), result);
+            // Periods inside a closed period use their frozen value, or freeze the one computed now
+            for (Iterator<Integer> it = owned.iterator(); it.hasNext(); ) {
+                int i = it.next();
+                ReportPeriodDTO period = periods.get(i);
+                if (mapping.getCoaId() != null && frozenByPeriod.get(i).containsKey(mapping.getCoaId())) {
+                    slots.get(i).complete(frozenByPeriod.get(i).get(mapping.getCoaId()));
+                    it.remove();
+                } else if (freezeService.isClosed(period.getStartDate(), period.getEndDate())) {
+                    slots.get(i).thenAccept(value ->
+                            freezeService.freeze(mapping, period.getStartDate(), period.getEndDate(), value));
+                }
+            }
+            if (owned.isEmpty()) {
+                continue;
+            }
+            if (mapping.isDerived()) {
+                owned.forEach(i -> derivedByPeriod.get(i).add(new DerivedCoaResolver.DerivedSlot(mapping, slots.get(i))));
+                continue;
+            }
 
+            CompiledCoaSql compiled;
+            try {
+                compiled = sqlCompiler.compile(mapping);
             } catch (Exception e) {
-                log.error("❌ Error processing cell {}: {}", mapping.getTargetCell(), e.getMessage());
-                cellValues.put(mapping.getTargetCell(), "ERROR: " + e.getMessage());
+                log.error("❌ Error compiling SQL for cell {}: {}", mapping.getTargetCell(), e.getMessage());
+                owned.forEach(i -> slots.get(i).complete("ERROR: " + e.getMessage()));
+                continue;
+            }
+
+            List<PreparedCoaQuery> queries = new ArrayList<>(periods.size());
+            boolean routed = false;
+            for (ReportPeriodDTO period : periods) {
+                PreparedCoaQuery query = new PreparedCoaQuery(mapping, compiled.sql(),
+                        compiled.bind(period.getStartDate(), period.getEndDate()), compiled.descriptor(),
+                        period.getStartDate(), period.getEndDate());
+                PreparedCoaQuery routedQuery = rollupService.route(query, period.getStartDate(), period.getEndDate());
+                routed |= routedQuery != query;
+                queries.add(routedQuery);
+            }
+
+            // Periods answered from the rollup are cheap lookups, so they run individually
+            SeriesQueryPlanner.SeriesQuery series = owned.size() == periods.size() && periods.size() > 1
+                    && mapping.getRowReducer() == null && !routed ? seriesPlanner.plan(compiled, periods) : null;
+            if (series != null) {
+                statements++;
+                if (series.bucketed()) bucketed++;
+                dispatch(deadline, () -> {
+                    List<Object> values = executeSeries(series, queries, deadline);
+                    for (int i = 0; i < slots.size(); i++) {
+                        slots.get(i).complete(values.get(i));
+                    }
+                }, slots);
+            } else {
+                for (int i : owned) {
+                    PreparedCoaQuery query = queries.get(i);
+                    CompletableFuture<Object> slot = slots.get(i);
+                    statements++;
+                    dispatch(deadline, () -> slot.complete(evaluateQuery(query, deadline)), List.of(slot));
+                }
             }
         }
 
-        log.info("✅ Generated {} cell values for sheet: {}", cellValues.size(), sheetName);
-        return cellValues;
+        // Derived COAs are resolved per period; COAs they pull in run once per period they are needed in
+        List<PreparedCoaQuery> referenced = new ArrayList<>();
+        Map<PreparedCoaQuery, CompletableFuture<Object>> referencedSlots = new IdentityHashMap<>();
+        for (int i = 0; i < periods.size(); i++) {
+            LocalDate startDate = periods.get(i).getStartDate();
+            LocalDate endDate = periods.get(i).getEndDate();
+            derivedResolver.resolve(derivedByPeriod.get(i), knownByPeriod.get(i), startDate, endDate, memo,
+                    (definition, slot) -> {
+                        if (freezeService.isClosed(startDate, endDate)
+                                && completeFromFrozen(definition, startDate, endDate, slot)) {
+                            return;
+                        }
+                        try {
+                            PreparedCoaQuery query = prepareQuery(definition, startDate, endDate);
+                            referenced.add(query);
+                            referencedSlots.put(query, slot);
+                        } catch (Exception e) {
+                            log.error("❌ Error compiling SQL for referenced COA {}: {}", definition.getCoaCode(), e.getMessage());
+                            slot.complete("ERROR: " + e.getMessage());
+                        }
+                    });
+        }
+        for (PreparedCoaQuery query : referenced) {
+            CompletableFuture<Object> slot = referencedSlots.get(query);
+            statements++;
+            dispatch(deadline, () -> slot.complete(evaluateQuery(query, deadline)), List.of(slot));
+        }
+
+        Map<String, List<Object>> cellValues = new LinkedHashMap<>();
+        for (Map.Entry<String, List<CompletableFuture<Object>>> entry : pending.entrySet()) {
+            List<Object> values = new ArrayList<>(periods.size());
+            for (CompletableFuture<Object> slot : entry.getValue()) {
+                values.add(awaitValue(slot, entry.getKey(), deadline));
+            }
+            cellValues.put(entry.getKey(), values);
+        }
+
+        log.info("✅ Generated {} cells x {} periods for sheet: {} with {} statements ({} bucketed)",
+                cellValues.size(), periods.size(), sheetName, statements, bucketed);
+
+        ReportSeriesDTO result = new ReportSeriesDTO();
+        result.setSheetName(sheetName);
+        result.setPeriods(periods.stream().map(ReportPeriodDTO::displayLabel).toList());
+        result.setCellValues(cellValues);
+        result.setStatementsPlanned(statements);
+        return result;
+    }
+
+    private static void validatePeriods(List<ReportPeriodDTO> periods) {
+        if (periods == null || periods.isEmpty()) {
+            throw new IllegalArgumentException("At least one period is required");
+        }
+        for (ReportPeriodDTO period : periods) {
+            if (period.getStartDate() == null || period.getEndDate() == null) {
+                throw new IllegalArgumentException("Every period needs a start and end date");
+            }
+            if (period.getStartDate().isAfter(period.getEndDate())) {
+                throw new IllegalArgumentException("Period start is after its end: " + period.displayLabel());
+            }
+        }
+    }
+
+    private static List<CompletableFuture<Object>> completedSeries(int size, Object value) {
+        return Collections.nCopies(size, CompletableFuture.completedFuture(value));
     }
 
-    @Transactional
-    public byte[] generateExcelReport(String sheetName,
-                                      LocalDate startDate,
-                                      LocalDate endDate) throws IOException {
+    private List<Object> executeSeries(SeriesQueryPlanner.SeriesQuery series,
+                                       List<PreparedCoaQuery> periodQueries,
+                                       ReportDeadline deadline) {
+        int size = periodQueries.size();
+        long started = System.nanoTime();
+        try {
+            List<Object> row = statementRunner.query(series.sql(), series.args(), rs -> {
+                List<Object> values = new ArrayList<>(size);
+                if (rs.next()) {
+                    for (int i = 1; i <= size; i++) {
+                        values.add(rs.getObject(i));
+                    }
+                }
+                return values;
+            }, deadline);
+
+            reportMetrics.recordStatement("series", System.nanoTime() - started);
+            if (row == null || row.size() != size) {
+                throw new IllegalStateException("Series statement returned no row");
+            }
+
+            List<Object> results = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                results.add(toAggregateResult(periodQueries.get(i), row.get(i), deadline));
+            }
+            return results;
+
+        } catch (Exception e) {
+            if (deadline.isExpired()) {
+                return Collections.nCopies(size, ReportDeadline.TIMEOUT);
+            }
+            log.warn("Series statement for COA {} failed, executing per period: {}",
+                    periodQueries.get(0).mapping().getCoaCode(), e.getMessage());
+            List<Object> results = new ArrayList<>(size);
+            for (PreparedCoaQuery query : periodQueries) {
+                results.add(evaluateQuery(query, deadline));
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Digest of everything that defines a sheet's output besides the period: which cells are mapped
+     * to which COA, and the version, script, formula, row reducer and rollup account of each COA. Any edit
+     * yields a new fingerprint; COAs only referenced by a formula are covered by CoaService evicting the cache.
+     */
+    private static String definitionFingerprint(List<CellMappingDTO> mappings) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (CellMappingDTO mapping : mappings) {
+                String part = mapping.getMappingId() + ":" + mapping.getTargetCell() + ":" + mapping.getCoaId()
+                        + ":" + mapping.getCoaVersion() + ":" + mapping.getSqlScript() + ":" + mapping.getFormula()
+                        + ":" + mapping.getRowReducer() + ":" + mapping.getRollupAccount() + "\n";
+                digest.update(part.getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static boolean hasErrorValues(Map<String, Object> cellValues) {
+        return cellValues.values().stream()
+                .anyMatch(value -> value instanceof String text
+                        && (text.startsWith("ERROR:") || text.equals(ReportDeadline.TIMEOUT)));
+    }
+
+    // Runs the task on the query executor; slots it leaves unresolved are failed so join() never hangs.
+    // Tasks still queued when the deadline passes are not started at all.
+    private void dispatch(ReportDeadline deadline, Runnable task, List<CompletableFuture<Object>> slots) {
+        Runnable guarded = () -> {
+            if (deadline.isExpired()) {
+                slots.forEach(slot -> slot.complete(ReportDeadline.TIMEOUT));
+                return;
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                slots.forEach(slot -> slot.completeExceptionally(t));
+            }
+        };
+
+        if (parallelism <= 1) {
+            guarded.run();
+            return;
+        }
+        try {
+            reportQueryExecutor.execute(guarded);
+        } catch (RejectedExecutionException e) {
+            guarded.run();
+        }
+    }
+
+    private PreparedCoaQuery prepareQuery(CellMappingDTO mapping, LocalDate startDate, LocalDate endDate) {
+        CompiledCoaSql compiled = sqlCompiler.compile(mapping);
+        PreparedCoaQuery query = new PreparedCoaQuery(mapping, compiled.sql(), compiled.bind(startDate, endDate),
+                compiled.descriptor(), startDate, endDate);
+        return rollupService.route(query, startDate, endDate);
+    }
+
+    private Object evaluateQuery(PreparedCoaQuery query, ReportDeadline deadline) {
+        CellMappingDTO mapping = query.mapping();
+        try {
+            log.debug("Executing SQL for cell {}: {}", mapping.getTargetCell(),
+                    query.sql().substring(0, Math.min(100, query.sql().length())) + "...");
+
+            Object result = executeSql(query, deadline);
+
+            log.debug("✅ Cell {} [{}] = {}", mapping.getTargetCell(),
+                    mapping.getCoaName(), result);
+            return result;
+
+        } catch (Exception e) {
+            log.error("❌ Error processing cell {}: {}", mapping.getTargetCell(), e.getMessage());
+            return "ERROR: " + e.getMessage();
+        }
+    }
+
+    private List<Object> executeFused(SheetQueryPlanner.FusedQuery fused, ReportDeadline deadline) {
+        int size = fused.members().size();
+        long started = System.nanoTime();
+        try {
+            List<Object> row = statementRunner.query(fused.sql(), fused.args(), rs -> {
+                List<Object> values = new ArrayList<>(size);
+                if (rs.next()) {
+                    for (int i = 1; i <= size; i++) {
+                        values.add(rs.getObject(i));
+                    }
+                }
+                return values;
+            }, deadline);
+
+            reportMetrics.recordStatement("fused", System.nanoTime() - started);
+            if (row == null || row.size() != size) {
+                throw new IllegalStateException("Fused statement returned no row");
+            }
+
+            List<Object> results = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                results.add(toAggregateResult(fused.members().get(i), row.get(i), deadline));
+            }
+            return results;
+
+        } catch (Exception e) {
+            if (deadline.isExpired()) {
+                return Collections.nCopies(size, ReportDeadline.TIMEOUT);
+            }
+            // One bad script fails the whole statement; re-run the members so each cell reports its own error
+            log.warn("Fused statement for {} cells failed, executing individually: {}", size, e.getMessage());
+            List<Object> results = new ArrayList<>(size);
+            for (PreparedCoaQuery member : fused.members()) {
+                results.add(evaluateQuery(member, deadline));
+            }
+            return results;
+        }
+    }
+
+    // Mirrors executeSql's aggregate branches: BigDecimal for DECIMAL scripts, double (null as 0) for NUMBER
+    private Object toAggregateResult(PreparedCoaQuery query, Object raw, ReportDeadline deadline) {
+        if (raw != null && !(raw instanceof Number)) {
+            return evaluateQuery(query, deadline);
+        }
+
+        BigDecimal value = raw == null ? null
+                : raw instanceof BigDecimal decimal ? decimal : new BigDecimal(raw.toString());
+        if (query.descriptor().getResultType() == CoaScriptDescriptor.ResultType.DECIMAL) {
+            return value;
+        }
+        return value != null ? value.doubleValue() : 0.0;
+    }
+
+    // Locates the template and computes the cell values up front, so a missing template is
+    // reported before any bytes of the download have been sent
+    public PreparedExcelReport prepareExcelReport(String sheetName,
+                                                  LocalDate startDate,
+                                                  LocalDate endDate) throws IOException {
+        return prepareExcelReport(sheetName, startDate, endDate, ReportProgressListener.NONE);
+    }
+
+    public PreparedExcelReport prepareExcelReport(String sheetName,
+                                                  LocalDate startDate,
+                                                  LocalDate endDate,
+                                                  ReportProgressListener listener) throws IOException {
+        return prepareExcelReport(sheetName, startDate, endDate, listener, new CoaResultMemo());
+    }
+
+    public PreparedExcelReport prepareExcelReport(String sheetName,
+                                                  LocalDate startDate,
+                                                  LocalDate endDate,
+                                                  ReportProgressListener listener,
+                                                  CoaResultMemo memo) throws IOException {
         log.info("Generating Excel report for sheet name: {}, dates: {} to {}",
                 sheetName, startDate, endDate);
 
@@ -159,94 +828,369 @@ public class ExcelReportService {
                 excelFile.getAbsolutePath(), sheetName);
 
         // Generate data using EXACT sheet name
-        Map<String, Object> cellValues = generateReportData(sheetName, startDate, endDate);
+        Map<String, Object> cellValues = generateReportData(sheetName, startDate, endDate, listener, memo);
+        return new PreparedExcelReport(sheetName, excelFile, cellValues);
+    }
 
-        if (cellValues.isEmpty()) {
-            log.warn("No data generated for sheet: {}. Returning template as-is.", sheetName);
+    /**
+     * Sheets to export: every known sheet, or the requested ones matched case-insensitively.
+     * Unknown names are rejected before anything is streamed.
+     */
+    public List<String> resolveExportSheets(List<String> requested) {
+        List<String> available = getAllSheetNames();
+        if (requested == null || requested.isEmpty()) {
+            return available;
+        }
+        Map<String, String> byName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        available.forEach(name -> byName.putIfAbsent(name, name));
+
+        List<String> sheets = new ArrayList<>();
+        List<String> unknown = new ArrayList<>();
+        for (String name : new LinkedHashSet<>(requested)) {
+            String match = byName.get(name.trim());
+            if (match == null) {
+                unknown.add(name);
+            } else if (!sheets.contains(match)) {
+                sheets.add(match);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("Unknown sheets: " + unknown);
+        }
+        return sheets;
+    }
+
+    /**
+     * Streams one workbook per sheet into a ZIP archive. At most {@code report.export.concurrency} sheets
+     * are computed at once, sharing one memo so COAs common to several sheets run once. Each workbook is
+     * written into the archive as soon as its values are ready, so only the workbook being serialized is
+     * held in memory. A sheet that fails gets a text entry with the error instead of a workbook.
+     */
+    public void writeReportArchive(List<String> sheetNames,
+                                   LocalDate startDate,
+                                   LocalDate endDate,
+                                   OutputStream out) throws IOException {
+        log.info("Exporting {} sheets for {} to {} (concurrency {})",
+                sheetNames.size(), startDate, endDate, exportConcurrency);
+
+        CoaResultMemo memo = new CoaResultMemo();
+        ExecutorService sheetExecutor = Executors.newFixedThreadPool(Math.max(1, exportConcurrency),
+                Thread.ofPlatform().name("report-export-", 0).daemon(true).factory());
+        ExecutorCompletionService<PreparedExcelReport> completion = new ExecutorCompletionService<>(sheetExecutor);
+        Map<Future<PreparedExcelReport>, String> submitted = new HashMap<>();
+        try {
+            for (String sheetName : sheetNames) {
+                submitted.put(completion.submit(() ->
+                        prepareExcelReport(sheetName, startDate, endDate, ReportProgressListener.NONE, memo)), sheetName);
+            }
+
+            ZipOutputStream zip = new ZipOutputStream(out);
+            Set<String> entryNames = new HashSet<>();
+            int written = 0;
+            for (int i = 0; i < submitted.size(); i++) {
+                Future<PreparedExcelReport> done = completion.take();
+                String sheetName = submitted.get(done);
+                try {
+                    PreparedExcelReport report = done.get();
+                    zip.putNextEntry(new ZipEntry(archiveEntryName(sheetName, report.template().getName(), entryNames)));
+                    // The workbook must not close the archive behind it
+                    writeExcelReport(report, CloseShieldOutputStream.wrap(zip));
+                    written++;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    log.error("❌ Export of sheet {} failed: {}", sheetName, cause.getMessage());
+                    zip.putNextEntry(new ZipEntry(archiveEntryName(sheetName + "_ERROR", "error.txt", entryNames)));
+                    zip.write(("Sheet: " + sheetName + "\nError: " + cause.getMessage() + "\n")
+                            .getBytes(StandardCharsets.UTF_8));
+                }
+                zip.closeEntry();
+                zip.flush();
+            }
+            zip.finish();
+            log.info("✅ Exported {} of {} sheets ({} distinct COA results)", written, sheetNames.size(), memo.size());
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Export interrupted");
+        } finally {
+            // Also stops sheets still computing when the client went away
+            sheetExecutor.shutdownNow();
+        }
+    }
+
+    // Sheet name made safe for an archive entry, with the template's extension and unique within the archive
+    private static String archiveEntryName(String sheetName, String templateName, Set<String> taken) {
+        String base = sheetName.replace(".xlsx", "").replace(".xls", "").replaceAll("[\\\\/:*?\"<>|]", "_");
+        int dot = templateName.lastIndexOf('.');
+        String extension = dot >= 0 ? templateName.substring(dot) : "";
+        String name = base + extension;
+        for (int i = 2; !taken.add(name.toLowerCase()); i++) {
+            name = base + "_" + i + extension;
+        }
+        return name;
+    }
+
+    // Serializes the workbook straight into the given stream; nothing is buffered in between
+    public void writeExcelReport(PreparedExcelReport report, OutputStream out) throws IOException {
+        if (report.cellValues().isEmpty()) {
+            log.warn("No data generated for sheet: {}. Returning template as-is.", report.sheetName());
             // Return the template file without modifications
-            try (FileInputStream fis = new FileInputStream(excelFile);
-                 ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
-                byte[] buffer = new byte[1024];
-                int bytesRead;
-                while ((bytesRead = fis.read(buffer)) != -1) {
-                    bos.write(buffer, 0, bytesRead);
+            out.write(templateCache.get(report.template()).bytes());
+            return;
+        }
+
+        Workbook workbook = updateExcelFile(report.template(), report.cellValues());
+        try {
+            reportMetrics.timeWorkbookWrite(() -> workbook.write(out));
+        } finally {
+            workbook.close();
+        }
+    }
+
+    /**
+     * Computes a reporting pack: the mappings of all sheets are loaded in one query and every distinct
+     * COA is executed once, however many sheets reference it.
+     */
+    public PreparedExcelPack prepareExcelPack(String templateName,
+                                              List<String> sheetNames,
+                                              LocalDate startDate,
+                                              LocalDate endDate) throws IOException {
+        if (sheetNames == null || sheetNames.isEmpty()) {
+            throw new IllegalArgumentException("At least one sheet name is required");
+        }
+        List<String> sheets = sheetNames.stream().distinct().toList();
+        log.info("Generating Excel pack for sheets: {}, dates: {} to {}", sheets, startDate, endDate);
+
+        String templateSheet = templateName != null && !templateName.isBlank() ? templateName : sheets.get(0);
+        File excelFile = findExcelFile(templateSheet);
+        if (excelFile == null || !excelFile.exists()) {
+            throw new FileNotFoundException(
+                    String.format("Excel file not found for sheet '%s'. Checked in: %s",
+                            templateSheet, uploadDir)
+            );
+        }
+
+        List<CellMappingDTO> mappings = reportMetrics.timeMappingLookup(() -> reportRepository.getCellMappingsBySheetNames(sheets));
+        log.info("Loaded {} mappings for {} sheets", mappings.size(), sheets.size());
+
+        reportMetrics.reportStarted();
+        try {
+            return new PreparedExcelPack(excelFile, computePackValues(sheets, mappings, startDate, endDate));
+        } finally {
+            reportMetrics.reportFinished();
+        }
+    }
+
+    private Map<String, Map<String, Object>> computePackValues(List<String> sheets,
+                                                               List<CellMappingDTO> mappings,
+                                                               LocalDate startDate,
+                                                               LocalDate endDate) {
+        CoaResultMemo memo = new CoaResultMemo();
+        ReportDeadline deadline = newDeadline();
+        List<CellResult> results = evaluateMappings(mappings, startDate, endDate, ReportProgressListener.NONE, memo, deadline);
+
+        // MySQL compares sheet names case-insensitively, so the returned name may differ from the request
+        Map<String, Map<String, Object>> sheetValues = new LinkedHashMap<>();
+        Map<String, Map<String, Object>> bySheetName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (String sheet : sheets) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            sheetValues.put(sheet, values);
+            bySheetName.put(sheet, values);
+        }
+        for (CellResult result : results) {
+            Map<String, Object> values = bySheetName.get(result.mapping().getSheetName());
+            if (values != null) {
+                values.put(result.mapping().getTargetCell(),
+                        awaitValue(result.value(), result.mapping().getTargetCell(), deadline));
+            }
+        }
+
+        log.info("✅ Generated values for {} cells across {} sheets from {} distinct COA results",
+                results.size(), sheets.size(), memo.size());
+        return sheetValues;
+    }
+
+    public PreparedSeriesReport prepareSeriesReport(String sheetName, List<ReportPeriodDTO> periods) throws IOException {
+        File excelFile = findExcelFile(sheetName);
+        if (excelFile == null || !excelFile.exists()) {
+            throw new FileNotFoundException(
+                    String.format("Excel file not found for sheet '%s'. Checked in: %s",
+                            sheetName, uploadDir)
+            );
+        }
+        ReportSeriesDTO series = generateSeriesData(sheetName, periods);
+        return new PreparedSeriesReport(excelFile, series, layOutSeries(excelFile, series));
+    }
+
+    public void writeSeriesReport(PreparedSeriesReport report, OutputStream out) throws IOException {
+        Workbook workbook = updateExcelFile(report.template(), report.cellValues());
+        try {
+            reportMetrics.timeWorkbookWrite(() -> workbook.write(out));
+        } finally {
+            workbook.close();
+        }
+    }
+
+    /**
+     * Places period {@code i} of each mapped cell {@code i} columns to its right. A layout in which a later
+     * period would land on another mapped cell, on another cell's period, on template content or past the
+     * last column is rejected instead of silently overwriting it.
+     */
+    private Map<String, Object> layOutSeries(File template, ReportSeriesDTO series) throws IOException {
+        Set<String> mapped = new HashSet<>();
+        for (String cellRef : series.getCellValues().keySet()) {
+            try {
+                mapped.add(new CellReference(cellRef.toUpperCase()).formatAsString());
+            } catch (IllegalArgumentException e) {
+                // reported when laid out below
+            }
+        }
+
+        Map<String, Object> cellValues = new LinkedHashMap<>();
+        Map<String, String> placedBy = new HashMap<>();
+        List<String> conflicts = new ArrayList<>();
+        try (Workbook workbook = templateCache.open(template)) {
+            Sheet sheet = workbook.getNumberOfSheets() > 0 ? workbook.getSheetAt(0) : null;
+            int lastColumn = workbook.getSpreadsheetVersion().getLastColumnIndex();
+            for (Map.Entry<String, List<Object>> entry : series.getCellValues().entrySet()) {
+                CellReference base;
+                try {
+                    base = new CellReference(entry.getKey().toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    log.warn("Invalid cell reference: {}", entry.getKey());
+                    continue;
+                }
+                String baseRef = base.formatAsString();
+                List<Object> values = entry.getValue();
+                for (int i = 0; i < values.size(); i++) {
+                    int col = base.getCol() + i;
+                    if (col > lastColumn) {
+                        conflicts.add(baseRef + " period " + (i + 1) + " is past the last column");
+                        break;
+                    }
+                    String cellRef = new CellReference(base.getRow(), col).formatAsString();
+                    String previous = placedBy.putIfAbsent(cellRef, baseRef);
+                    if (i > 0 && mapped.contains(cellRef)) {
+                        conflicts.add(baseRef + " period " + (i + 1) + " lands on mapped cell " + cellRef);
+                    } else if (previous != null) {
+                        conflicts.add(baseRef + " period " + (i + 1) + " lands on a period of " + previous);
+                    } else if (i > 0 && hasContent(sheet, base.getRow(), col)) {
+                        conflicts.add(baseRef + " period " + (i + 1) + " lands on template content in " + cellRef);
+                    }
+                    cellValues.put(cellRef, values.get(i));
                 }
-                return bos.toByteArray();
             }
         }
 
-        return updateExcelFile(excelFile, cellValues);
+        if (!conflicts.isEmpty()) {
+            throw new IllegalArgumentException(String.format(
+                    "Series of %d periods does not fit the template of sheet '%s': %s",
+                    series.getPeriods().size(), series.getSheetName(),
+                    String.join("; ", conflicts.subList(0, Math.min(conflicts.size(), 10)))));
+        }
+        return cellValues;
     }
 
-    private String prepareSql(String sqlScript, LocalDate startDate, LocalDate endDate) {
-        if (sqlScript == null || sqlScript.trim().isEmpty()) {
-            return "";
+    private static boolean hasContent(Sheet sheet, int rowIndex, int colIndex) {
+        Row row = sheet != null ? sheet.getRow(rowIndex) : null;
+        Cell cell = row != null ? row.getCell(colIndex) : null;
+        if (cell == null || cell.getCellType() == CellType.BLANK) {
+            return false;
         }
+        return cell.getCellType() != CellType.STRING || !cell.getStringCellValue().isBlank();
+    }
 
-        // First replace named parameters
-        String sql = sqlScript
-                .replace("${startDate}", "'" + startDate + "'")
-                .replace("${endDate}", "'" + endDate + "'")
-                .replace(":startDate", "'" + startDate + "'")
-                .replace(":endDate", "'" + endDate + "'")
-                .replace(":year", "'" + startDate.getYear() + "'");
+    // Opens the template once, fills every target sheet and writes the workbook in a single pass
+    public void writeExcelPack(PreparedExcelPack pack, OutputStream out) throws IOException {
+        Workbook workbook = reportMetrics.timeTemplateLoad(() -> templateCache.open(pack.template()));
+        try {
+            ReportCellStyles styles = new ReportCellStyles(workbook, numberFormat);
+            Map<Sheet, Set<String>> written = new IdentityHashMap<>();
+            int position = 0;
+            for (Map.Entry<String, Map<String, Object>> entry : pack.sheetValues().entrySet()) {
+                Sheet sheet = findPackSheet(workbook, entry.getKey(), position++);
+                int updatedCount = reportMetrics.timeCellFill(() -> fillSheet(sheet, entry.getValue(), styles));
+                written.computeIfAbsent(sheet, key -> new HashSet<>()).addAll(entry.getValue().keySet());
+                log.info("Updated {} cells in worksheet '{}' for sheet: {}",
+                        updatedCount, sheet.getSheetName(), entry.getKey());
+            }
+            if (recalculateFormulas) {
+                formulaRecalculator.recalculate(pack.template(), workbook, written);
+            }
+            reportMetrics.timeWorkbookWrite(() -> workbook.write(out));
+        } finally {
+            workbook.close();
+        }
+    }
 
-        // Also replace SQL Server style parameters
-        sql = sql.replace("@startDate", "'" + startDate + "'")
-                .replace("@endDate", "'" + endDate + "'")
-                .replace("@year", "'" + startDate.getYear() + "'");
+    // Matches the mapping sheet name (without extension) to a worksheet, falling back to its position in the pack
+    private Sheet findPackSheet(Workbook workbook, String sheetName, int position) {
+        String name = sheetName.replace(".xlsx", "").replace(".xls", "");
+        Sheet sheet = workbook.getSheet(name);
+        if (sheet != null) {
+            return sheet;
+        }
+        for (Sheet candidate : workbook) {
+            if (candidate.getSheetName().equalsIgnoreCase(name)) {
+                return candidate;
+            }
+        }
+        if (position < workbook.getNumberOfSheets()) {
+            log.warn("No worksheet named '{}' in pack template, using sheet at position {}", name, position);
+            return workbook.getSheetAt(position);
+        }
+        log.warn("No worksheet named '{}' in pack template, adding one", name);
+        return workbook.createSheet(WorkbookUtil.createSafeSheetName(name));
+    }
 
-        return sql;
+    private Object executeSql(PreparedCoaQuery query, ReportDeadline deadline) {
+        long started = System.nanoTime();
+        try {
+            return runSql(query, deadline);
+        } finally {
+            long elapsed = System.nanoTime() - started;
+            reportMetrics.recordCoaExecution(query.mapping().getCoaCode(), elapsed);
+            queryProfiler.record(query, elapsed);
+        }
     }
 
-    private Object executeSql(String sql, LocalDate startDate, LocalDate endDate) {
+    private Object runSql(PreparedCoaQuery query, ReportDeadline deadline) {
+        String sql = query.sql();
         try {
             if (sql == null || sql.trim().isEmpty()) {
                 return null;
             }
 
-            // Check for parameter placeholders
-            boolean hasParameters = sql.contains("?");
-
-            if (hasParameters) {
-                // Handle prepared statements with parameters
-                if (sql.toUpperCase().contains("SUM(") ||
-                        sql.toUpperCase().contains("AVG(") ||
-                        sql.toUpperCase().contains("COUNT(") ||
-                        sql.toUpperCase().contains("MAX(") ||
-                        sql.toUpperCase().contains("MIN(")) {
+            // Detail-row scripts are streamed and folded by their declared reducer
+            CoaRowReducer reducer = query.mapping().getRowReducer();
+            if (reducer != null) {
+                return statementRunner.reduceRows(sql, query.args(), reducer, deadline);
+            }
 
-                    return jdbcTemplate.queryForObject(sql,
-                            new Object[]{Date.valueOf(startDate), Date.valueOf(endDate)},
-                            BigDecimal.class);
-                } else {
-                    return jdbcTemplate.queryForObject(sql,
-                            new Object[]{Date.valueOf(startDate), Date.valueOf(endDate)},
-                            Object.class);
-                }
-            } else {
-                // No parameters, execute directly
-                if (sql.toUpperCase().contains("SUM(") ||
-                        sql.toUpperCase().contains("AVG(") ||
-                        sql.toUpperCase().contains("COUNT(") ||
-                        sql.toUpperCase().contains("MAX(") ||
-                        sql.toUpperCase().contains("MIN(")) {
-
-                    BigDecimal result = jdbcTemplate.queryForObject(sql, BigDecimal.class);
-                    return result != null ? result.doubleValue() : 0.0;
-                } else {
-                    return jdbcTemplate.queryForObject(sql, Object.class);
+            // Period values are always bound; the stored descriptor decides how the result is read
+            return switch (query.descriptor().getResultType()) {
+                case DECIMAL -> statementRunner.queryForObject(sql, BigDecimal.class, query.args(), deadline);
+                case NUMBER -> {
+                    BigDecimal result = statementRunner.queryForObject(sql, BigDecimal.class, query.args(), deadline);
+                    yield result != null ? result.doubleValue() : 0.0;
                 }
-            }
+                case OBJECT -> statementRunner.queryForObject(sql, Object.class, query.args(), deadline);
+            };
 
         } catch (org.springframework.dao.EmptyResultDataAccessException e) {
             log.warn("No results returned for SQL: {}", sql.substring(0, Math.min(100, sql.length())));
             return null;
+        } catch (org.springframework.dao.QueryTimeoutException e) {
+            log.warn("SQL timed out for cell {}: {}", query.mapping().getTargetCell(), e.getMostSpecificCause().getMessage());
+            return ReportDeadline.TIMEOUT;
         } catch (org.springframework.jdbc.BadSqlGrammarException e) {
             log.error("Bad SQL grammar: {}", sql);
             log.error("SQL error details: {}", e.getMessage());
             return "ERROR: Bad SQL - " + e.getMostSpecificCause().getMessage();
         } catch (Exception e) {
+            if (deadline.isExpired()) {
+                return ReportDeadline.TIMEOUT;
+            }
             log.error("SQL execution failed: {}", sql, e);
             return "ERROR: " + e.getMessage();
         }
@@ -308,19 +1252,9 @@ public class ExcelReportService {
         return null;
     }
 
-    private byte[] updateExcelFile(File excelFile, Map<String, Object> cellValues) throws IOException {
-        Workbook workbook;
-        String fileName = excelFile.getName().toLowerCase();
-
-        try (FileInputStream fis = new FileInputStream(excelFile)) {
-            if (fileName.endsWith(".xlsx")) {
-                workbook = new XSSFWorkbook(fis);
-            } else if (fileName.endsWith(".xls")) {
-                workbook = new HSSFWorkbook(fis);
-            } else {
-                throw new IllegalArgumentException("Unsupported file format: " + fileName);
-            }
-        }
+    // Returns the filled workbook; the caller writes and closes it
+    private Workbook updateExcelFile(File excelFile, Map<String, Object> cellValues) throws IOException {
+        Workbook workbook = reportMetrics.timeTemplateLoad(() -> templateCache.open(excelFile));
 
         Sheet sheet = workbook.getSheetAt(0);
         if (sheet == null) {
@@ -329,6 +1263,19 @@ public class ExcelReportService {
 
         log.info("Updating {} cells in Excel file: {}", cellValues.size(), excelFile.getName());
 
+        Sheet target = sheet;
+        int updatedCount = reportMetrics.timeCellFill(
+                () -> fillSheet(target, cellValues, new ReportCellStyles(workbook, numberFormat)));
+        if (recalculateFormulas) {
+            formulaRecalculator.recalculate(excelFile, workbook, Map.of(sheet, cellValues.keySet()));
+        }
+
+        log.info("✅ Updated {} cells successfully in {}", updatedCount, excelFile.getName());
+        return workbook;
+    }
+
+    // Writes the values into their target cells and returns how many were updated
+    private int fillSheet(Sheet sheet, Map<String, Object> cellValues, ReportCellStyles styles) {
         int updatedCount = 0;
         for (Map.Entry<String, Object> entry : cellValues.entrySet()) {
             String cellRef = entry.getKey().toUpperCase();
@@ -361,19 +1308,13 @@ public class ExcelReportService {
 
                     // Apply number format for financial values
                     if (Math.abs(doubleValue) >= 1000) {
-                        CellStyle numberStyle = workbook.createCellStyle();
-                        DataFormat format = workbook.createDataFormat();
-                        numberStyle.setDataFormat(format.getFormat("#,##0.00"));
-                        cell.setCellStyle(numberStyle);
+                        styles.applyNumberFormat(cell);
                     }
                 } else if (value instanceof String) {
                     String strValue = (String) value;
                     if (strValue.startsWith("ERROR:")) {
                         cell.setCellValue(strValue);
-                        CellStyle errorStyle = workbook.createCellStyle();
-                        errorStyle.setFillForegroundColor(IndexedColors.RED.getIndex());
-                        errorStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-                        cell.setCellStyle(errorStyle);
+                        styles.applyErrorFill(cell);
                     } else {
                         cell.setCellValue(strValue);
                     }
@@ -396,23 +1337,7 @@ public class ExcelReportService {
             }
         }
 
-        log.info("✅ Updated {} cells successfully in {}", updatedCount, excelFile.getName());
-
-        // Write to byte array
-        try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
-            workbook.write(bos);
-            byte[] bytes = bos.toByteArray();
-
-            // Verify the file is not empty
-            if (bytes.length == 0) {
-                throw new IOException("Generated Excel file is empty");
-            }
-
-            log.info("Generated Excel file size: {} bytes", bytes.length);
-            return bytes;
-        } finally {
-            workbook.close();
-        }
+        return updatedCount;
     }
 
     @Transactional(readOnly = true)
@@ -0,0 +1,112 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory copy of the template files in excel_downloads, keyed by absolute path.
+ *
+ * <p>An entry is reused while the file's modification time and size are unchanged and is dropped when
+ * the template is deleted. The total size is bounded by {@code report.template-cache.max-bytes} and the
+ * least recently used templates are evicted first. POI workbooks cannot be cloned, so each report still
+ * builds its own workbook, but from memory instead of disk.</p>
+ */
+@Component
+@Slf4j
+public class ExcelTemplateCache {
+
+    @Value("${report.template-cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    // Access-ordered so iteration starts at the least recently used template
+    private final LinkedHashMap<String, CachedTemplate> templates = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public Workbook open(File file) throws IOException {
+        CachedTemplate template = get(file);
+        String fileName = file.getName().toLowerCase();
+
+        try (InputStream in = new ByteArrayInputStream(template.bytes())) {
+            if (fileName.endsWith(".xlsx")) {
+                return new XSSFWorkbook(in);
+            } else if (fileName.endsWith(".xls")) {
+                return new HSSFWorkbook(in);
+            }
+        }
+        throw new IllegalArgumentException("Unsupported file format: " + fileName);
+    }
+
+    public CachedTemplate get(File file) throws IOException {
+        Path path = file.toPath().toAbsolutePath().normalize();
+        String key = path.toString();
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        long size = Files.size(path);
+
+        synchronized (this) {
+            CachedTemplate cached = templates.get(key);
+            if (cached != null && cached.lastModified() == lastModified && cached.size() == size) {
+                return cached;
+            }
+        }
+
+        // Read outside the lock; a concurrent miss on the same file just reads it twice
+        CachedTemplate loaded = new CachedTemplate(key, lastModified, size, Files.readAllBytes(path));
+        log.debug("Loaded template {} ({} bytes) into cache", key, size);
+
+        synchronized (this) {
+            remove(key);
+            if (loaded.bytes().length <= maxBytes) {
+                templates.put(key, loaded);
+                totalBytes += loaded.bytes().length;
+                evictToBudget();
+            }
+        }
+        return loaded;
+    }
+
+    public synchronized void invalidate(String filePath) {
+        if (filePath != null) {
+            remove(Paths.get(filePath).toAbsolutePath().normalize().toString());
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        templates.clear();
+        totalBytes = 0;
+    }
+
+    private void remove(String key) {
+        CachedTemplate removed = templates.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.bytes().length;
+        }
+    }
+
+    private void evictToBudget() {
+        Iterator<Map.Entry<String, CachedTemplate>> it = templates.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            CachedTemplate evicted = it.next().getValue();
+            it.remove();
+            totalBytes -= evicted.bytes().length;
+            log.debug("Evicted template {} from cache", evicted.path());
+        }
+    }
+
+    public record CachedTemplate(String path, long lastModified, long size, byte[] bytes) {
+    }
+}
@@ -0,0 +1,259 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import com.JavaWebToken.jwtAuthentication.entity.CoaScriptDescriptor;
+import com.JavaWebToken.jwtAuthentication.entity.RollupRefreshState;
+import com.JavaWebToken.jwtAuthentication.repository.RollupRefreshStateRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maintains ledger_daily_rollup, one row per posting day and account, from the ledger table configured in
+ * {@code report.rollup.*}, and routes COAs that declare a rollup account to it.
+ * <p>
+ * Each refresh rewrites the days from {@code report.rollup.lookback-days} before the watermark onwards,
+ * so late postings into recent days are picked up. Days before today are then considered complete;
+ * only periods ending on or before that watermark are routed, later ones still run their own script.
+ * <p>
+ * A COA is only routed when its script has exactly the rollup's shape, e.g.
+ * {@code SELECT SUM(amount) FROM ledger_transactions WHERE account_code = '4000' AND posting_date BETWEEN :startDate AND :endDate}
+ * with the declared rollup account as the literal. Any other predicate or expression keeps the COA on its own script.
+ */
+@Service
+@Lazy(false)
+@RequiredArgsConstructor
+@Slf4j
+public class LedgerRollupService {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)?");
+
+    private static final String ROLLUP_SUM_SQL =
+            "SELECT SUM(r.amount_total) FROM ledger_daily_rollup r WHERE r.account_code = ? AND r.rollup_date BETWEEN ? AND ?";
+    private static final String ROLLUP_COUNT_SQL =
+            "SELECT COALESCE(SUM(r.row_count), 0) FROM ledger_daily_rollup r WHERE r.account_code = ? AND r.rollup_date BETWEEN ? AND ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RollupRefreshStateRepository refreshStateRepository;
+
+    @Value("${report.rollup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${report.rollup.source-table:ledger_transactions}")
+    private String sourceTable;
+
+    @Value("${report.rollup.date-column:posting_date}")
+    private String dateColumn;
+
+    @Value("${report.rollup.account-column:account_code}")
+    private String accountColumn;
+
+    @Value("${report.rollup.amount-column:amount}")
+    private String amountColumn;
+
+    @Value("${report.rollup.lookback-days:7}")
+    private int lookbackDays;
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final Set<String> unroutableWarned = ConcurrentHashMap.newKeySet();
+    private volatile LocalDate completeThrough;
+    private Pattern rollupShape;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        for (String identifier : new String[]{sourceTable, dateColumn, accountColumn, amountColumn}) {
+            if (!IDENTIFIER.matcher(identifier).matches()) {
+                throw new IllegalStateException("Invalid report.rollup identifier: " + identifier);
+            }
+        }
+        rollupShape = rollupShape(sourceTable, dateColumn, accountColumn, amountColumn, isDateColumnPlainDate());
+        completeThrough = refreshStateRepository.findById(sourceTable)
+                .map(RollupRefreshState::getCompleteThrough)
+                .orElse(null);
+        log.info("Ledger rollup over {} complete through {}", sourceTable, completeThrough);
+    }
+
+    @Scheduled(cron = "${report.rollup.refresh-cron:0 */15 * * * *}")
+    public void scheduledRefresh() {
+        if (enabled) {
+            refresh();
+        }
+    }
+
+    /**
+     * Rewrites the rollup from the day after {@code lookback-days} before the watermark (or from the
+     * first posting on the first run). Returns the refresh state, or empty if a refresh is already running.
+     */
+    public Optional<RollupRefreshState> refresh() {
+        if (!enabled) {
+            throw new IllegalStateException("Ledger rollup is disabled (report.rollup.enabled=false)");
+        }
+        if (!refreshing.compareAndSet(false, true)) {
+            log.info("Ledger rollup refresh already running, skipping");
+            return Optional.empty();
+        }
+        try {
+            long started = System.nanoTime();
+            LocalDate today = LocalDate.now();
+            LocalDate from = completeThrough != null
+                    ? completeThrough.minusDays(Math.max(0, lookbackDays))
+                    : jdbcTemplate.queryForObject(
+                            "SELECT MIN(DATE(" + dateColumn + ")) FROM " + sourceTable, LocalDate.class);
+            if (from == null) {
+                from = today;
+            }
+            LocalDate rebuildFrom = from;
+
+            int rows = transactionTemplate.execute(status -> {
+                jdbcTemplate.update("DELETE FROM ledger_daily_rollup WHERE rollup_date >= ?", Date.valueOf(rebuildFrom));
+                return jdbcTemplate.update(
+                        "INSERT INTO ledger_daily_rollup (rollup_date, account_code, amount_total, row_count, refreshed_at) "
+                                + "SELECT DATE(" + dateColumn + "), " + accountColumn + ", SUM(" + amountColumn + "), COUNT(*), ? "
+                                + "FROM " + sourceTable + " WHERE " + dateColumn + " >= ? AND " + accountColumn + " IS NOT NULL "
+                                + "GROUP BY DATE(" + dateColumn + "), " + accountColumn,
+                        LocalDateTime.now(), Date.valueOf(rebuildFrom));
+            });
+
+            RollupRefreshState state = RollupRefreshState.builder()
+                    .sourceTable(sourceTable)
+                    .completeThrough(today.minusDays(1))
+                    .lastRefreshedAt(LocalDateTime.now())
+                    .lastRowsWritten(rows)
+                    .lastDurationMs((System.nanoTime() - started) / 1_000_000)
+                    .build();
+            refreshStateRepository.save(state);
+            completeThrough = state.getCompleteThrough();
+
+            log.info("✅ Ledger rollup refreshed from {}: {} rows in {} ms, complete through {}",
+                    rebuildFrom, rows, state.getLastDurationMs(), completeThrough);
+            return Optional.of(state);
+        } catch (RuntimeException e) {
+            log.error("❌ Ledger rollup refresh failed: {}", e.getMessage(), e);
+            throw e;
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    public Optional<RollupRefreshState> getState() {
+        return refreshStateRepository.findById(sourceTable);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Rewrites a query to read the rollup when its COA declares a rollup account, its compiled script has
+     * exactly the rollup's shape for that account, and the rollup is complete for the whole period.
+     * Otherwise the query is returned unchanged.
+     */
+    public PreparedCoaQuery route(PreparedCoaQuery query, LocalDate startDate, LocalDate endDate) {
+        String account = query.mapping().getRollupAccount();
+        LocalDate watermark = completeThrough;
+        if (!enabled || account == null || account.isBlank() || query.mapping().getRowReducer() != null
+                || watermark == null || endDate.isAfter(watermark)) {
+            return query;
+        }
+
+        CoaScriptDescriptor.AggregateKind kind = matchRollupShape(query.sql(), account);
+        // The date predicate must be bound to the period itself, in order
+        if (kind == null || !Arrays.equals(query.args(), new Object[]{Date.valueOf(startDate), Date.valueOf(endDate)})) {
+            if (unroutableWarned.add(query.mapping().getCoaId() + ":" + query.mapping().getCoaVersion())) {
+                log.warn("⚠️ COA {} declares rollup account {} but its script is not a plain SUM/COUNT over {} "
+                        + "for that account and period; running its own script", query.mapping().getCoaCode(),
+                        account, sourceTable);
+            }
+            return query;
+        }
+
+        // The rollup statement is a scalar aggregate, so it still fuses with the sheet's other queries
+        CoaScriptDescriptor descriptor = CoaScriptDescriptor.builder()
+                .aggregateKind(kind)
+                .resultType(query.descriptor().getResultType())
+                .placeholders(query.descriptor().getPlaceholders())
+                .parameterCount(3)
+                .positional(query.descriptor().getPositional())
+                .scalar(true)
+                .build();
+        String sql = kind == CoaScriptDescriptor.AggregateKind.SUM ? ROLLUP_SUM_SQL : ROLLUP_COUNT_SQL;
+        return new PreparedCoaQuery(query.mapping(), sql,
+                new Object[]{account, Date.valueOf(startDate), Date.valueOf(endDate)}, descriptor, startDate, endDate);
+    }
+
+    // SUM or COUNT when sql is exactly the rollup's shape over account, otherwise null
+    CoaScriptDescriptor.AggregateKind matchRollupShape(String sql, String account) {
+        Matcher matcher = rollupShape.matcher(sql);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String literal = matcher.group("account1") != null ? matcher.group("account1") : matcher.group("account2");
+        if (!literal.replace("''", "'").equals(account)) {
+            return null;
+        }
+        return matcher.group("sum") != null
+                ? CoaScriptDescriptor.AggregateKind.SUM
+                : CoaScriptDescriptor.AggregateKind.COUNT;
+    }
+
+    /**
+     * {@code SELECT SUM(amount)|COUNT(*) FROM table [alias] WHERE account = '...' AND date BETWEEN ? AND ?},
+     * predicates in either order. A bare date column only matches when it holds plain dates; otherwise
+     * BETWEEN would drop the end day's postings that the rollup (grouped by DATE(column)) includes.
+     */
+    static Pattern rollupShape(String table, String dateColumn, String accountColumn, String amountColumn,
+                               boolean plainDateColumn) {
+        String qualifier = "(?:\\w+\\.)?";
+        String date = Pattern.quote(unqualified(dateColumn));
+        String dateExpression = plainDateColumn
+                ? "(?:" + qualifier + date + "|DATE\\s*\\(\\s*" + qualifier + date + "\\s*\\))"
+                : "DATE\\s*\\(\\s*" + qualifier + date + "\\s*\\)";
+        String datePredicate = dateExpression + "\\s+BETWEEN\\s+\\?\\s+AND\\s+\\?";
+        String accountPredicate = qualifier + Pattern.quote(unqualified(accountColumn)) + "\\s*=\\s*'(?<%s>(?:[^'\\\\]|'')*)'";
+        return Pattern.compile("\\s*SELECT\\s+(?:(?<sum>SUM)\\s*\\(\\s*" + qualifier + Pattern.quote(unqualified(amountColumn))
+                        + "\\s*\\)|COUNT\\s*\\(\\s*(?:\\*|1)\\s*\\))"
+                        + "\\s+FROM\\s+" + Pattern.quote(table) + "(?:\\s+(?:AS\\s+)?(?!WHERE\\b)\\w+)?"
+                        + "\\s+WHERE\\s+(?:" + accountPredicate.formatted("account1") + "\\s+AND\\s+" + datePredicate
+                        + "|" + datePredicate + "\\s+AND\\s+" + accountPredicate.formatted("account2") + ")"
+                        + "\\s*;?\\s*",
+                Pattern.CASE_INSENSITIVE);
+    }
+
+    private static String unqualified(String column) {
+        return column.substring(column.lastIndexOf('.') + 1);
+    }
+
+    private boolean isDateColumnPlainDate() {
+        try {
+            Integer type = jdbcTemplate.query("SELECT " + dateColumn + " FROM " + sourceTable + " WHERE 1 = 0",
+                    (ResultSetExtractor<Integer>) rs -> rs.getMetaData().getColumnType(1));
+            return type != null && type == Types.DATE;
+        } catch (RuntimeException e) {
+            log.warn("Could not read the type of {}.{}, routing only DATE({}) predicates: {}",
+                    sourceTable, dateColumn, dateColumn, e.getMessage());
+            return false;
+        }
+    }
+}
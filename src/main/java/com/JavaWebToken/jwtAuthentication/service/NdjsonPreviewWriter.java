@@ -0,0 +1,160 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Writes a report preview as newline-delimited JSON while it is computed: a {@code started} record,
+ * one {@code cell} record per cell as soon as its value is known, and a closing {@code summary}.
+ *
+ * <p>Cell callbacks arrive on the shared query workers, so they only queue their record; the thread calling
+ * {@link #stream} writes to the client while the report is computed on a separate virtual thread. A slow
+ * client therefore never holds up COA execution. {@link #finish} queues any cell whose callback has not run
+ * yet before the summary, so every cell appears exactly once and the summary is always last. A client that
+ * disconnects just stops the output; the report still completes.</p>
+ */
+@Slf4j
+public class NdjsonPreviewWriter implements ReportProgressListener {
+
+    private static final Map<String, Object> END = Map.of();
+
+    private final ObjectMapper objectMapper;
+    private final String sheetName;
+    private final long startedAt = System.nanoTime();
+    private final BlockingQueue<Map<String, Object>> records = new LinkedBlockingQueue<>();
+    private final Set<String> written = new HashSet<>();
+    private boolean finished;
+    private volatile boolean clientGone;
+    private long firstValueMillis = -1;
+
+    public NdjsonPreviewWriter(ObjectMapper objectMapper, String sheetName) {
+        this.objectMapper = objectMapper;
+        this.sheetName = sheetName;
+    }
+
+    /**
+     * Computes {@code report} on a virtual thread and writes its records to {@code out} from the calling
+     * thread until the summary or error record has been written or the client disconnects.
+     */
+    public void stream(OutputStream out, Supplier<Map<String, Object>> report) {
+        Thread.ofVirtual().name("report-preview-" + sheetName).start(() -> {
+            try {
+                finish(report.get());
+            } catch (Throwable t) {
+                log.error("Error streaming preview for sheet {}: {}", sheetName, t.getMessage(), t);
+                fail(t.getMessage() != null ? t.getMessage() : t.getClass().getSimpleName());
+                if (t instanceof Error error) {
+                    throw error;
+                }
+            } finally {
+                // Even if queueing the error record failed, the streaming thread must not wait forever
+                end();
+            }
+        });
+
+        try {
+            for (Map<String, Object> record = records.take(); record != END; record = records.take()) {
+                out.write(objectMapper.writeValueAsBytes(record));
+                out.write('\n');
+                out.flush();
+            }
+        } catch (IOException e) {
+            log.warn("Preview stream for sheet {} closed by client: {}", sheetName, e.getMessage());
+            clientGone = true;
+            records.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            clientGone = true;
+            records.clear();
+        }
+    }
+
+    @Override
+    public synchronized void started(int totalCells) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("type", "started");
+        record.put("sheetName", sheetName);
+        record.put("totalCells", totalCells);
+        enqueue(record);
+    }
+
+    @Override
+    public synchronized void cellCompleted(String targetCell, Object value) {
+        if (finished || !written.add(targetCell)) {
+            return;
+        }
+        long elapsed = elapsedMillis();
+        if (firstValueMillis < 0) {
+            firstValueMillis = elapsed;
+        }
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("type", "cell");
+        record.put("cell", targetCell);
+        record.put("value", value);
+        record.put("elapsedMillis", elapsed);
+        enqueue(record);
+    }
+
+    /**
+     * Queues the cells not streamed yet and the summary, then ignores any further callbacks.
+     */
+    public synchronized void finish(Map<String, Object> cellValues) {
+        cellValues.forEach(this::cellCompleted);
+
+        int errors = 0;
+        int timeouts = 0;
+        for (Object value : cellValues.values()) {
+            if (ReportDeadline.TIMEOUT.equals(value)) {
+                timeouts++;
+            } else if (value instanceof String text && text.startsWith("ERROR:")) {
+                errors++;
+            }
+        }
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("type", "summary");
+        record.put("sheetName", sheetName);
+        record.put("cells", cellValues.size());
+        record.put("errors", errors);
+        record.put("timeouts", timeouts);
+        record.put("firstValueMillis", Math.max(firstValueMillis, 0));
+        record.put("elapsedMillis", elapsedMillis());
+        enqueue(record);
+        end();
+    }
+
+    public synchronized void fail(String message) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("type", "error");
+        record.put("message", message);
+        enqueue(record);
+        end();
+    }
+
+    // Never blocks: the queue is unbounded and emptied by the streaming thread
+    private void enqueue(Map<String, Object> record) {
+        if (!finished && !clientGone) {
+            records.add(record);
+        }
+    }
+
+    private synchronized void end() {
+        if (!finished) {
+            finished = true;
+            records.add(END);
+        }
+    }
+
+    private long elapsedMillis() {
+        return (System.nanoTime() - startedAt) / 1_000_000;
+    }
+}
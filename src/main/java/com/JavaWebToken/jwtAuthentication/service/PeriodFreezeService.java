@@ -0,0 +1,236 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import com.JavaWebToken.jwtAuthentication.config.CacheConfig;
+import com.JavaWebToken.jwtAuthentication.dto.CellMappingDTO;
+import com.JavaWebToken.jwtAuthentication.entity.ClosedPeriod;
+import com.JavaWebToken.jwtAuthentication.entity.CoaPeriodValue;
+import com.JavaWebToken.jwtAuthentication.repository.ClosedPeriodRepository;
+import com.JavaWebToken.jwtAuthentication.repository.CoaPeriodValueRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Freezes COA values of closed accounting periods. The first report over a period inside a closed period
+ * stores each COA value in coa_period_values, keyed by COA version; later reports read it back instead of
+ * running the script. Editing a COA bumps its version, so frozen values of the old script are not reused.
+ * Derived (formula) COAs are not frozen: they are re-evaluated from their frozen inputs, so editing a
+ * referenced COA changes the derived value too.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PeriodFreezeService {
+
+    private final ClosedPeriodRepository closedPeriodRepository;
+    private final CoaPeriodValueRepository periodValueRepository;
+    private final CacheManager cacheManager;
+    @Qualifier("periodFreezeExecutor")
+    private final ExecutorService freezeExecutor;
+
+    // Closed periods are few and read for every report, so they are kept in memory
+    private volatile List<ClosedPeriod> closedPeriods;
+
+    public boolean isClosed(LocalDate startDate, LocalDate endDate) {
+        return closedPeriods().stream().anyMatch(period -> period.covers(startDate, endDate));
+    }
+
+    /**
+     * Frozen values of the given mappings' SQL COAs for the period, keyed by coa_id.
+     * Only values stored for the COA's current version are returned.
+     */
+    public Map<Long, Object> loadFrozen(Collection<CellMappingDTO> mappings, LocalDate startDate, LocalDate endDate) {
+        Map<Long, Integer> versions = new HashMap<>();
+        for (CellMappingDTO mapping : mappings) {
+            if (mapping.getCoaId() != null && !mapping.isDerived()) {
+                versions.put(mapping.getCoaId(), versionOf(mapping));
+            }
+        }
+        if (versions.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Long, Object> frozen = new HashMap<>();
+        for (CoaPeriodValue value : periodValueRepository.findByCoaIdInAndStartDateAndEndDate(versions.keySet(), startDate, endDate)) {
+            if (value.getCoaVersion().equals(versions.get(value.getCoaId()))) {
+                frozen.put(value.getCoaId(), decode(value));
+            }
+        }
+        log.debug("Loaded {} frozen COA values for closed period {} to {}", frozen.size(), startDate, endDate);
+        return frozen;
+    }
+
+    /**
+     * Stores a freshly computed value; derived COAs and failed, timed out and missing-script cells are never frozen.
+     * Called as query slots complete, so the insert is queued on periodFreezeExecutor rather than run on the
+     * report's SQL worker.
+     */
+    public void freeze(CellMappingDTO mapping, LocalDate startDate, LocalDate endDate, Object value) {
+        if (mapping.getCoaId() == null || mapping.isDerived() || !isFreezable(value)) {
+            return;
+        }
+        CoaPeriodValue.ValueType type = typeOf(value);
+        CoaPeriodValue periodValue = CoaPeriodValue.builder()
+                .coaId(mapping.getCoaId())
+                .coaVersion(versionOf(mapping))
+                .startDate(startDate)
+                .endDate(endDate)
+                .valueType(type)
+                .valueText(encode(type, value))
+                .computedAt(LocalDateTime.now())
+                .build();
+        try {
+            freezeExecutor.execute(() -> save(periodValue));
+        } catch (RejectedExecutionException e) {
+            log.warn("Could not queue freeze of COA {} for {} to {}: {}", mapping.getCoaId(), startDate, endDate, e.getMessage());
+        }
+    }
+
+    private void save(CoaPeriodValue periodValue) {
+        Long coaId = periodValue.getCoaId();
+        LocalDate startDate = periodValue.getStartDate();
+        LocalDate endDate = periodValue.getEndDate();
+        // The period may have been re-opened while the value waited in the queue
+        if (!isClosed(startDate, endDate)) {
+            return;
+        }
+        try {
+            periodValueRepository.save(periodValue);
+        } catch (DataIntegrityViolationException e) {
+            // Another report froze the same value first
+            log.debug("COA {} already frozen for {} to {}", coaId, startDate, endDate);
+        } catch (Exception e) {
+            log.warn("Could not freeze COA {} for {} to {}: {}", coaId, startDate, endDate, e.getMessage());
+        }
+    }
+
+    public List<ClosedPeriod> listClosedPeriods() {
+        return closedPeriodRepository.findAllByOrderByStartDateDesc();
+    }
+
+    @Transactional
+    public ClosedPeriod closePeriod(LocalDate startDate, LocalDate endDate, String closedBy) {
+        if (startDate == null || endDate == null || startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("A valid startDate and endDate are required");
+        }
+        Optional<ClosedPeriod> existing = closedPeriodRepository.findByStartDateAndEndDate(startDate, endDate);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+
+        ClosedPeriod saved = closedPeriodRepository.save(ClosedPeriod.builder()
+                .startDate(startDate)
+                .endDate(endDate)
+                .closedBy(closedBy != null ? closedBy : "system")
+                .closedAt(LocalDateTime.now())
+                .build());
+        afterCommit(() -> closedPeriods = null);
+        log.info("✅ Closed period {} to {} by {}", startDate, endDate, saved.getClosedBy());
+        return saved;
+    }
+
+    // Re-opening discards the frozen values, so the next report recomputes them from the ledger
+    @Transactional
+    public ClosedPeriod reopenPeriod(Long periodId) {
+        ClosedPeriod period = closedPeriodRepository.findById(periodId)
+                .orElseThrow(() -> new IllegalArgumentException("Closed period not found with id: " + periodId));
+
+        closedPeriodRepository.delete(period);
+        int removed = periodValueRepository.deleteWithin(period.getStartDate(), period.getEndDate());
+        // Until commit, concurrent reports still see the period closed; resetting earlier would let them
+        // reload and re-cache the old values after the reset
+        afterCommit(() -> {
+            closedPeriods = null;
+            Cache reportData = cacheManager.getCache(CacheConfig.REPORT_DATA_CACHE);
+            if (reportData != null) {
+                reportData.clear();
+            }
+        });
+        log.info("✅ Re-opened period {} to {}, dropped {} frozen values", period.getStartDate(), period.getEndDate(), removed);
+        return period;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private List<ClosedPeriod> closedPeriods() {
+        List<ClosedPeriod> periods = closedPeriods;
+        if (periods == null) {
+            periods = List.copyOf(closedPeriodRepository.findAll());
+            closedPeriods = periods;
+        }
+        return periods;
+    }
+
+    private static int versionOf(CellMappingDTO mapping) {
+        return mapping.getCoaVersion() != null ? mapping.getCoaVersion() : 0;
+    }
+
+    private static boolean isFreezable(Object value) {
+        if (value instanceof String text) {
+            return !text.startsWith("ERROR:") && !text.equals(ReportDeadline.TIMEOUT) && !text.equals("NO_SQL");
+        }
+        return true;
+    }
+
+    private static CoaPeriodValue.ValueType typeOf(Object value) {
+        if (value == null) return CoaPeriodValue.ValueType.NULL;
+        if (value instanceof BigDecimal || value instanceof BigInteger) return CoaPeriodValue.ValueType.DECIMAL;
+        if (value instanceof Double || value instanceof Float) return CoaPeriodValue.ValueType.DOUBLE;
+        if (value instanceof Number) return CoaPeriodValue.ValueType.LONG;
+        if (value instanceof Boolean) return CoaPeriodValue.ValueType.BOOLEAN;
+        if (value instanceof java.sql.Date || value instanceof LocalDate) return CoaPeriodValue.ValueType.DATE;
+        if (value instanceof Timestamp || value instanceof LocalDateTime) return CoaPeriodValue.ValueType.DATETIME;
+        return CoaPeriodValue.ValueType.STRING;
+    }
+
+    private static String encode(CoaPeriodValue.ValueType type, Object value) {
+        return switch (type) {
+            case NULL -> null;
+            case DECIMAL -> value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+            case DATE -> value instanceof java.sql.Date date ? date.toLocalDate().toString() : value.toString();
+            case DATETIME -> value instanceof Timestamp timestamp ? timestamp.toLocalDateTime().toString() : value.toString();
+            default -> value.toString();
+        };
+    }
+
+    private static Object decode(CoaPeriodValue value) {
+        String text = value.getValueText();
+        return switch (value.getValueType()) {
+            case NULL -> null;
+            case DECIMAL -> new BigDecimal(text);
+            case DOUBLE -> Double.valueOf(text);
+            case LONG -> Long.valueOf(text);
+            case BOOLEAN -> Boolean.valueOf(text);
+            case DATE -> LocalDate.parse(text);
+            case DATETIME -> LocalDateTime.parse(text);
+            case STRING -> text;
+        };
+    }
+}
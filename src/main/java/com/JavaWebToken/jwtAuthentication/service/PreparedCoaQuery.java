@@ -0,0 +1,14 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import com.JavaWebToken.jwtAuthentication.dto.CellMappingDTO;
+import com.JavaWebToken.jwtAuthentication.entity.CoaScriptDescriptor;
+
+import java.time.LocalDate;
+
+/**
+ * A mapping's COA script ready to run for one period: parameterized SQL, its bind arguments,
+ * the descriptor that decides how it is executed and the period it was bound for.
+ */
+public record PreparedCoaQuery(CellMappingDTO mapping, String sql, Object[] args, CoaScriptDescriptor descriptor,
+                               LocalDate startDate, LocalDate endDate) {
+}
@@ -0,0 +1,11 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * A reporting pack whose template has been located and whose cell values have been computed
+ * for every sheet, keyed by sheet name in request order.
+ */
+public record PreparedExcelPack(File template, Map<String, Map<String, Object>> sheetValues) {
+}
@@ -0,0 +1,11 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * A report whose template has been located and whose cell values have been computed,
+ * ready to be written to an output stream.
+ */
+public record PreparedExcelReport(String sheetName, File template, Map<String, Object> cellValues) {
+}
@@ -0,0 +1,14 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import com.JavaWebToken.jwtAuthentication.dto.ReportSeriesDTO;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * A multi-period report whose template has been located and whose period-by-cell values have been computed.
+ * Period {@code i} of a mapped cell is written {@code i} columns to the right of the cell; {@code cellValues}
+ * holds that layout, already checked not to overwrite other cells.
+ */
+public record PreparedSeriesReport(File template, ReportSeriesDTO series, Map<String, Object> cellValues) {
+}
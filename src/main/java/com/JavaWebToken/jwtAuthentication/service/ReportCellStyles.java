@@ -0,0 +1,70 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-workbook registry of the styles applied to report cells.
+ *
+ * <p>Each style is derived from the cell's existing template style, so borders, fonts and alignment
+ * survive, and is created once per (template style, kind) pair instead of once per cell.</p>
+ */
+public class ReportCellStyles {
+
+    private enum Kind { NUMBER, ERROR }
+
+    private record Key(short baseStyle, Kind kind) {
+    }
+
+    private final Workbook workbook;
+    private final String numberFormat;
+    private final Map<Key, CellStyle> styles = new HashMap<>();
+    private short numberFormatIndex = -1;
+
+    public ReportCellStyles(Workbook workbook, String numberFormat) {
+        this.workbook = workbook;
+        this.numberFormat = numberFormat;
+    }
+
+    public void applyNumberFormat(Cell cell) {
+        CellStyle base = cell.getCellStyle();
+        short format = numberFormatIndex();
+        if (base.getDataFormat() == format) {
+            return;
+        }
+        cell.setCellStyle(styles.computeIfAbsent(new Key(base.getIndex(), Kind.NUMBER), key -> {
+            CellStyle style = derive(base);
+            style.setDataFormat(format);
+            return style;
+        }));
+    }
+
+    public void applyErrorFill(Cell cell) {
+        CellStyle base = cell.getCellStyle();
+        cell.setCellStyle(styles.computeIfAbsent(new Key(base.getIndex(), Kind.ERROR), key -> {
+            CellStyle style = derive(base);
+            style.setFillForegroundColor(IndexedColors.RED.getIndex());
+            style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            return style;
+        }));
+    }
+
+    private CellStyle derive(CellStyle base) {
+        CellStyle style = workbook.createCellStyle();
+        style.cloneStyleFrom(base);
+        return style;
+    }
+
+    private short numberFormatIndex() {
+        if (numberFormatIndex < 0) {
+            numberFormatIndex = workbook.createDataFormat().getFormat(numberFormat);
+        }
+        return numberFormatIndex;
+    }
+}
@@ -0,0 +1,87 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Time budget of one report run. Statements executed for the run are tracked while they are open, so that
+ * {@link #expire()} can cancel them; cells still outstanding at that point are reported as {@link #TIMEOUT}.
+ */
+@Slf4j
+public class ReportDeadline {
+
+    public static final String TIMEOUT = "TIMEOUT";
+
+    private final long deadlineNanos;
+    private final boolean bounded;
+    private final Set<Statement> running = ConcurrentHashMap.newKeySet();
+    private volatile boolean expired;
+
+    private ReportDeadline(Duration budget) {
+        this.bounded = budget != null && !budget.isZero() && !budget.isNegative();
+        this.deadlineNanos = bounded ? System.nanoTime() + budget.toNanos() : 0L;
+    }
+
+    // A zero or negative budget means the run is unbounded
+    public static ReportDeadline after(Duration budget) {
+        return new ReportDeadline(budget);
+    }
+
+    public static ReportDeadline none() {
+        return new ReportDeadline(null);
+    }
+
+    public boolean isExpired() {
+        return expired || (bounded && System.nanoTime() - deadlineNanos >= 0);
+    }
+
+    public long remainingMillis() {
+        if (!bounded) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0L, Duration.ofNanos(deadlineNanos - System.nanoTime()).toMillis());
+    }
+
+    // Statement timeout for the next query: the configured per-statement limit, capped by what is left of the run
+    public int statementTimeoutSeconds(int queryTimeoutSeconds) {
+        if (!bounded) {
+            return Math.max(0, queryTimeoutSeconds);
+        }
+        int remaining = (int) Math.max(1L, (remainingMillis() + 999) / 1000);
+        return queryTimeoutSeconds > 0 ? Math.min(queryTimeoutSeconds, remaining) : remaining;
+    }
+
+    public void track(Statement statement) {
+        running.add(statement);
+        if (isExpired()) {
+            cancel(statement);
+        }
+    }
+
+    public void untrack(Statement statement) {
+        running.remove(statement);
+    }
+
+    // Marks the run as timed out and cancels every statement still executing for it
+    public void expire() {
+        if (expired) {
+            return;
+        }
+        expired = true;
+        log.warn("Report deadline expired, cancelling {} running statements", running.size());
+        running.forEach(ReportDeadline::cancel);
+    }
+
+    private static void cancel(Statement statement) {
+        try {
+            statement.cancel();
+        } catch (SQLException e) {
+            log.debug("Could not cancel statement: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import com.JavaWebToken.jwtAuthentication.entity.ReportJob;
+import com.JavaWebToken.jwtAuthentication.repository.ReportJobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs report generation in the background. Jobs are persisted in report_jobs before they are queued,
+ * so work queued or running at shutdown is picked up again on the next start. Finished jobs and their
+ * result files are deleted {@code report.jobs.retention-hours} after they complete.
+ */
+@Service
+@Lazy(false)
+@RequiredArgsConstructor
+@Slf4j
+public class ReportJobService {
+
+    private static final long PROGRESS_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final ReportJobRepository reportJobRepository;
+    private final ExcelReportService excelReportService;
+    @Qualifier("reportJobExecutor")
+    private final ExecutorService reportJobExecutor;
+
+    @Value("${report.jobs.result-dir:${upload.dir:${user.home}/excel-uploads}/report-jobs}")
+    private String resultDir;
+
+    @Value("${report.jobs.retention-hours:24}")
+    private long retentionHours;
+
+    public ReportJob submit(String sheetName, LocalDate startDate, LocalDate endDate, String createdBy) {
+        if (sheetName == null || sheetName.isBlank()) {
+            throw new IllegalArgumentException("Sheet name is required");
+        }
+        if (startDate == null || endDate == null || startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("A valid startDate and endDate are required");
+        }
+
+        ReportJob job = ReportJob.builder()
+                .jobId(UUID.randomUUID().toString())
+                .sheetName(sheetName)
+                .startDate(startDate)
+                .endDate(endDate)
+                .status(ReportJob.Status.QUEUED)
+                .createdBy(createdBy != null ? createdBy : "system")
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        ReportJob saved = reportJobRepository.save(job);
+        enqueue(saved.getJobId());
+        log.info("Queued report job {} for sheet: {}, period: {} to {}",
+                saved.getJobId(), sheetName, startDate, endDate);
+        return saved;
+    }
+
+    public Optional<ReportJob> findJob(String jobId) {
+        return reportJobRepository.findById(jobId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePendingJobs() {
+        List<ReportJob> pending = reportJobRepository.findByStatusInOrderByCreatedAtAsc(
+                List.of(ReportJob.Status.QUEUED, ReportJob.Status.RUNNING));
+
+        for (ReportJob job : pending) {
+            // A RUNNING job at startup was interrupted by the previous shutdown
+            if (job.getStatus() == ReportJob.Status.RUNNING) {
+                job.setStatus(ReportJob.Status.QUEUED);
+                job.setCellsDone(0);
+                reportJobRepository.save(job);
+            }
+            enqueue(job.getJobId());
+        }
+
+        if (!pending.isEmpty()) {
+            log.info("Re-queued {} report jobs after restart", pending.size());
+        }
+    }
+
+    @Scheduled(cron = "${report.jobs.cleanup-cron:0 0 * * * *}")
+    public void deleteExpiredJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(retentionHours);
+        List<ReportJob> expired = reportJobRepository.findByStatusInAndCompletedAtBefore(
+                List.of(ReportJob.Status.COMPLETED, ReportJob.Status.FAILED), cutoff);
+
+        int deleted = 0;
+        for (ReportJob job : expired) {
+            try {
+                deleteResultFile(job.getResultPath());
+                reportJobRepository.delete(job);
+                deleted++;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not delete expired report job {}: {}", job.getJobId(), e.getMessage());
+            }
+        }
+        if (deleted > 0) {
+            log.info("Deleted {} report jobs finished before {}", deleted, cutoff);
+        }
+    }
+
+    private void enqueue(String jobId) {
+        reportJobExecutor.execute(() -> run(jobId));
+    }
+
+    private void run(String jobId) {
+        ReportJob job = reportJobRepository.findById(jobId).orElse(null);
+        if (job == null || job.getStatus() != ReportJob.Status.QUEUED) {
+            return;
+        }
+
+        job.setStatus(ReportJob.Status.RUNNING);
+        job.setStartedAt(LocalDateTime.now());
+        job = reportJobRepository.save(job);
+
+        Path resultPath = null;
+        try {
+            PreparedExcelReport report = excelReportService.prepareExcelReport(
+                    job.getSheetName(), job.getStartDate(), job.getEndDate(), new JobProgress(jobId));
+
+            String extension = report.template().getName().toLowerCase().endsWith(".xls") ? ".xls" : ".xlsx";
+            Path directory = Paths.get(resultDir).toAbsolutePath().normalize();
+            Files.createDirectories(directory);
+            resultPath = directory.resolve(jobId + extension);
+
+            try (OutputStream out = Files.newOutputStream(resultPath)) {
+                excelReportService.writeExcelReport(report, out);
+            }
+
+            job = reportJobRepository.findById(jobId).orElse(job);
+            job.setStatus(ReportJob.Status.COMPLETED);
+            job.setCellsDone(report.cellValues().size());
+            job.setCellsTotal(report.cellValues().size());
+            job.setResultPath(resultPath.toString());
+            job.setResultFileName(String.format("%s_%s_to_%s%s",
+                    job.getSheetName().replace(".xls", "").replace(".xlsx", ""),
+                    job.getStartDate().format(DateTimeFormatter.ofPattern("yyyyMMdd")),
+                    job.getEndDate().format(DateTimeFormatter.ofPattern("yyyyMMdd")),
+                    extension));
+            job.setCompletedAt(LocalDateTime.now());
+            reportJobRepository.save(job);
+            log.info("✅ Report job {} completed: {}", jobId, resultPath);
+
+        } catch (Throwable t) {
+            // Errors too: an OutOfMemoryError while filling a large workbook must not leave the job RUNNING
+            log.error("❌ Report job {} failed: {}", jobId, t.getMessage(), t);
+            try {
+                deleteResultFile(resultPath != null ? resultPath.toString() : null);
+                job = reportJobRepository.findById(jobId).orElse(job);
+                job.setStatus(ReportJob.Status.FAILED);
+                job.setErrorMessage(t.getMessage() != null ? t.getMessage() : t.getClass().getSimpleName());
+                job.setCompletedAt(LocalDateTime.now());
+                reportJobRepository.save(job);
+            } catch (Throwable markFailure) {
+                log.error("❌ Could not mark report job {} as failed: {}", jobId, markFailure.getMessage());
+            }
+            if (t instanceof Error error) {
+                throw error;
+            }
+        }
+    }
+
+    private static void deleteResultFile(String resultPath) throws IOException {
+        if (resultPath != null) {
+            Files.deleteIfExists(Paths.get(resultPath));
+        }
+    }
+
+    // Persists the cell counters at most once a second; callbacks arrive from several query workers
+    @RequiredArgsConstructor
+    private class JobProgress implements ReportProgressListener {
+
+        private final String jobId;
+        private final AtomicInteger done = new AtomicInteger();
+        private final AtomicLong lastWrite = new AtomicLong(System.nanoTime());
+        private volatile int total;
+
+        @Override
+        public void started(int totalCells) {
+            total = totalCells;
+            reportJobRepository.updateProgress(jobId, 0, totalCells);
+        }
+
+        @Override
+        public void cellCompleted(String targetCell, Object value) {
+            int current = done.incrementAndGet();
+            long now = System.nanoTime();
+            long last = lastWrite.get();
+            if (now - last >= PROGRESS_INTERVAL_NANOS && lastWrite.compareAndSet(last, now)) {
+                reportJobRepository.updateProgress(jobId, current, total);
+            }
+        }
+    }
+}
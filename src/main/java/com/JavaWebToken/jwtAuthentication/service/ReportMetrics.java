@@ -0,0 +1,144 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Meters for the stages of report generation, published through the actuator {@code metrics} endpoint.
+ *
+ * <ul>
+ *   <li>{@code report.mapping.lookup} - loading cell mappings</li>
+ *   <li>{@code report.coa.execution} - one COA statement, tagged with the COA code</li>
+ *   <li>{@code report.sql.statement} - a fused or series statement covering several COAs or periods</li>
+ *   <li>{@code report.template.load}, {@code report.cell.fill}, {@code report.workbook.write} - workbook stages</li>
+ *   <li>{@code report.cells.errors}, {@code report.mappings.skipped} - counters</li>
+ *   <li>{@code report.inflight} - reports being computed right now</li>
+ * </ul>
+ * Timers publish percentile histograms so latency distributions can be aggregated across instances.
+ */
+@Component
+public class ReportMetrics {
+
+    private static final String CELL_ERRORS_DESCRIPTION = "Report cells that resolved to an error or timed out";
+
+    private final MeterRegistry registry;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final Timer mappingLookup;
+    private final Timer templateLoad;
+    private final Timer cellFill;
+    private final Timer workbookWrite;
+    private final Counter errorCells;
+    private final Counter timedOutCells;
+
+    public ReportMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.mappingLookup = timer("report.mapping.lookup", "Loading cell mappings for a report");
+        this.templateLoad = timer("report.template.load", "Opening a report template");
+        this.cellFill = timer("report.cell.fill", "Writing computed values into a worksheet");
+        this.workbookWrite = timer("report.workbook.write", "Serializing a filled workbook");
+        this.errorCells = Counter.builder("report.cells.errors").tag("kind", "error")
+                .description(CELL_ERRORS_DESCRIPTION).register(registry);
+        this.timedOutCells = Counter.builder("report.cells.errors").tag("kind", "timeout")
+                .description(CELL_ERRORS_DESCRIPTION).register(registry);
+        Gauge.builder("report.inflight", inFlight, AtomicInteger::get)
+                .description("Reports currently being computed").register(registry);
+    }
+
+    public <T> T timeMappingLookup(Supplier<T> lookup) {
+        return mappingLookup.record(lookup);
+    }
+
+    public <T> T timeTemplateLoad(IoSupplier<T> load) throws IOException {
+        return time(templateLoad, load);
+    }
+
+    public <T> T timeCellFill(Supplier<T> fill) {
+        return cellFill.record(fill);
+    }
+
+    public void timeWorkbookWrite(IoRunnable write) throws IOException {
+        time(workbookWrite, () -> {
+            write.run();
+            return null;
+        });
+    }
+
+    public void recordCoaExecution(String coaCode, long nanos) {
+        Timer.builder("report.coa.execution")
+                .description("Executing one COA statement")
+                .tag("coa", coaCode != null ? coaCode : "unknown")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // kind is "fused" or "series"
+    public void recordStatement(String kind, long nanos) {
+        Timer.builder("report.sql.statement")
+                .description("Executing a statement that covers several COAs or periods")
+                .tag("kind", kind)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // reason is "no_target_cell" or "no_sql"
+    public void mappingSkipped(String reason) {
+        Counter.builder("report.mappings.skipped")
+                .description("Mappings left out of a report")
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    public void cellResolved(Object value) {
+        if (ReportDeadline.TIMEOUT.equals(value)) {
+            timedOutCells.increment();
+        } else if (value instanceof String text && text.startsWith("ERROR:")) {
+            errorCells.increment();
+        }
+    }
+
+    public void reportStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    public void reportFinished() {
+        inFlight.decrementAndGet();
+    }
+
+    private Timer timer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static <T> T time(Timer timer, IoSupplier<T> action) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @FunctionalInterface
+    public interface IoSupplier<T> {
+        T get() throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface IoRunnable {
+        void run() throws IOException;
+    }
+}
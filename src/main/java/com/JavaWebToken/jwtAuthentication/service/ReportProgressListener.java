@@ -0,0 +1,17 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+/**
+ * Receives progress while a report's cell values are computed. Callbacks for individual cells
+ * arrive on the query worker threads, in completion order.
+ */
+public interface ReportProgressListener {
+
+    ReportProgressListener NONE = new ReportProgressListener() {
+    };
+
+    default void started(int totalCells) {
+    }
+
+    default void cellCompleted(String targetCell, Object value) {
+    }
+}
@@ -0,0 +1,61 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import com.JavaWebToken.jwtAuthentication.entity.CoaRowReducer;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Running state of a {@link CoaRowReducer} over a streamed result set. Only the current row is held,
+ * so memory does not grow with the number of detail rows.
+ */
+class RowReduction {
+
+    private final CoaRowReducer reducer;
+    private BigDecimal sum;
+    private long count;
+    private Object value;
+
+    RowReduction(CoaRowReducer reducer) {
+        this.reducer = reducer;
+    }
+
+    void accept(ResultSet rs) throws SQLException {
+        count++;
+        switch (reducer) {
+            case SUM -> {
+                Object raw = rs.getObject(1);
+                if (raw != null) {
+                    BigDecimal amount = raw instanceof BigDecimal decimal ? decimal : new BigDecimal(raw.toString());
+                    sum = sum == null ? amount : sum.add(amount);
+                }
+            }
+            case COUNT -> {
+            }
+            case FIRST -> {
+                if (count == 1) {
+                    value = rs.getObject(1);
+                }
+            }
+            case LAST -> value = rs.getObject(1);
+        }
+    }
+
+    // FIRST only needs one row, so the stream can stop early
+    boolean isComplete() {
+        return reducer == CoaRowReducer.FIRST && count > 0;
+    }
+
+    Object result() {
+        return switch (reducer) {
+            case SUM -> sum;
+            case COUNT -> count;
+            case FIRST, LAST -> value;
+        };
+    }
+
+    long rowCount() {
+        return count;
+    }
+}
@@ -0,0 +1,160 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import com.JavaWebToken.jwtAuthentication.dto.ReportPeriodDTO;
+import com.JavaWebToken.jwtAuthentication.entity.CoaScriptDescriptor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns one COA script into a single statement that returns a value per period.
+ * <p>
+ * Simple {@code SELECT SUM|COUNT|AVG|MIN|MAX(expr) FROM ... WHERE col BETWEEN :startDate AND :endDate} scripts are
+ * bucketed: the range is widened to cover every period and each period becomes a conditional aggregate,
+ * so the table is scanned once. Other scalar aggregates are fused as {@code SELECT (q1) AS c1, (q2) AS c2, ...}
+ * with one subquery per period. Anything else returns {@code null} and is run per period.
+ */
+@Component
+@Slf4j
+public class SeriesQueryPlanner {
+
+    private static final Pattern LEADING_AGGREGATE = Pattern.compile(
+            "^\\s*SELECT\\s+(SUM|COUNT|AVG|MIN|MAX)\\s*\\(", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ALIAS_THEN_FROM = Pattern.compile(
+            "^\\s*(?:(?:AS\\s+)?[\\w`]+\\s+)?(?=FROM\\b)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern RANGE = Pattern.compile(
+            "([\\w`]+(?:\\.[\\w`]+)?)\\s+BETWEEN\\s+\\?\\s+AND\\s+\\?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern AGGREGATE = Pattern.compile("\\b(SUM|AVG|COUNT|MAX|MIN)\\s*\\(", Pattern.CASE_INSENSITIVE);
+    private static final Pattern OR = Pattern.compile("\\bOR\\b", Pattern.CASE_INSENSITIVE);
+
+    public SeriesQuery plan(CompiledCoaSql compiled, List<ReportPeriodDTO> periods) {
+        CoaScriptDescriptor descriptor = compiled.descriptor();
+        if (!descriptor.isAggregate() || !Boolean.TRUE.equals(descriptor.getScalar())) {
+            return null;
+        }
+
+        String sql = stripTerminator(compiled.sql());
+        SeriesQuery bucketed = bucket(sql, compiled.parameters(), periods);
+        if (bucketed != null) {
+            return bucketed;
+        }
+        return fuse(sql, compiled, periods);
+    }
+
+    private SeriesQuery bucket(String sql, List<CoaSqlParameter> parameters, List<ReportPeriodDTO> periods) {
+        if (!parameters.equals(List.of(CoaSqlParameter.START_DATE, CoaSqlParameter.END_DATE))) {
+            return null;
+        }
+
+        Matcher leading = LEADING_AGGREGATE.matcher(sql);
+        if (!leading.find()) {
+            return null;
+        }
+        int close = matchingParen(sql, leading.end());
+        if (close < 0) {
+            return null;
+        }
+        String function = leading.group(1).toUpperCase();
+        String argument = sql.substring(leading.end(), close).trim();
+        if (argument.isEmpty() || argument.regionMatches(true, 0, "DISTINCT", 0, 8)) {
+            return null;
+        }
+
+        Matcher from = ALIAS_THEN_FROM.matcher(sql).region(close + 1, sql.length());
+        if (!from.lookingAt()) {
+            return null;
+        }
+        String rest = sql.substring(from.end());
+
+        // The period filter must be a plain top-level AND condition of the outer query
+        Matcher range = RANGE.matcher(rest);
+        if (!range.find() || depthAt(rest, range.start()) != 0 || range.find(range.end())
+                || AGGREGATE.matcher(rest).find() || OR.matcher(rest).find()) {
+            return null;
+        }
+        range.find(0);
+        String column = range.group(1);
+
+        StringBuilder select = new StringBuilder("SELECT ");
+        List<Object> args = new ArrayList<>();
+        for (int i = 0; i < periods.size(); i++) {
+            ReportPeriodDTO period = periods.get(i);
+            if (i > 0) select.append(", ");
+            String then = function.equals("COUNT") && argument.equals("*") ? "1" : argument;
+            select.append(function).append("(CASE WHEN ").append(column).append(" BETWEEN ? AND ? THEN ")
+                    .append(then).append(" END) AS c").append(i + 1);
+            args.add(CoaSqlParameter.START_DATE.valueFor(period.getStartDate(), period.getEndDate()));
+            args.add(CoaSqlParameter.END_DATE.valueFor(period.getStartDate(), period.getEndDate()));
+        }
+        select.append(' ').append(rest);
+
+        LocalDate first = periods.stream().map(ReportPeriodDTO::getStartDate).min(Comparator.naturalOrder()).orElseThrow();
+        LocalDate last = periods.stream().map(ReportPeriodDTO::getEndDate).max(Comparator.naturalOrder()).orElseThrow();
+        args.add(CoaSqlParameter.START_DATE.valueFor(first, last));
+        args.add(CoaSqlParameter.END_DATE.valueFor(first, last));
+
+        return new SeriesQuery(select.toString(), args.toArray(), true);
+    }
+
+    private SeriesQuery fuse(String sql, CompiledCoaSql compiled, List<ReportPeriodDTO> periods) {
+        StringBuilder select = new StringBuilder("SELECT ");
+        List<Object> args = new ArrayList<>();
+        for (int i = 0; i < periods.size(); i++) {
+            ReportPeriodDTO period = periods.get(i);
+            if (i > 0) select.append(", ");
+            select.append('(').append(sql).append(") AS c").append(i + 1);
+            args.addAll(List.of(compiled.bind(period.getStartDate(), period.getEndDate())));
+        }
+        return new SeriesQuery(select.toString(), args.toArray(), false);
+    }
+
+    // Index of the parenthesis closing the one opened just before start, skipping quoted text
+    private static int matchingParen(String sql, int start) {
+        int depth = 1;
+        for (int i = start; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                int end = sql.indexOf(c, i + 1);
+                if (end < 0) return -1;
+                i = end;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int depthAt(String sql, int position) {
+        int depth = 0;
+        for (int i = 0; i < position; i++) {
+            char c = sql.charAt(i);
+            if (c == '(') depth++;
+            else if (c == ')') depth--;
+        }
+        return depth;
+    }
+
+    private static String stripTerminator(String sql) {
+        String trimmed = sql.trim();
+        while (trimmed.endsWith(";")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1).trim();
+        }
+        return trimmed;
+    }
+
+    /**
+     * One round trip returning a single row; column {@code c(i+1)} holds the value for period {@code i}.
+     *
+     * @param bucketed whether the script was rewritten into conditional aggregates over one scan
+     */
+    public record SeriesQuery(String sql, Object[] args, boolean bucketed) {
+    }
+}
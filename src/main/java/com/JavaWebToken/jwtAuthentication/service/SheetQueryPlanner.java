@@ -0,0 +1,90 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import com.JavaWebToken.jwtAuthentication.entity.CoaScriptDescriptor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Groups the COA queries of a sheet into as few round trips as possible.
+ * Scalar aggregate SELECTs are fused into {@code SELECT (q1) AS c1, (q2) AS c2, ...} statements of
+ * at most {@code report.excel.batch-size} columns; everything else is executed on its own.
+ */
+@Component
+@Slf4j
+public class SheetQueryPlanner {
+
+    @Value("${report.excel.batch-size:100}")
+    private int batchSize;
+
+    public Plan plan(List<PreparedCoaQuery> queries) {
+        List<PreparedCoaQuery> fusable = new ArrayList<>();
+        List<PreparedCoaQuery> singles = new ArrayList<>();
+
+        for (PreparedCoaQuery query : queries) {
+            if (batchSize > 1 && isScalarAggregate(query)) {
+                fusable.add(query);
+            } else {
+                singles.add(query);
+            }
+        }
+
+        List<FusedQuery> fused = new ArrayList<>();
+        for (int from = 0; from < fusable.size(); from += batchSize) {
+            List<PreparedCoaQuery> chunk = fusable.subList(from, Math.min(from + batchSize, fusable.size()));
+            if (chunk.size() == 1) {
+                singles.add(chunk.get(0));
+            } else {
+                fused.add(fuse(chunk));
+            }
+        }
+
+        log.debug("Planned {} queries into {} fused statements and {} single statements",
+                queries.size(), fused.size(), singles.size());
+        return new Plan(fused, singles);
+    }
+
+    boolean isScalarAggregate(PreparedCoaQuery query) {
+        // Row-reduced scripts are streamed on their own statement
+        if (query.mapping().getRowReducer() != null) {
+            return false;
+        }
+        CoaScriptDescriptor descriptor = query.descriptor();
+        return descriptor.isAggregate() && Boolean.TRUE.equals(descriptor.getScalar());
+    }
+
+    private FusedQuery fuse(List<PreparedCoaQuery> chunk) {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        List<Object> args = new ArrayList<>();
+
+        for (int i = 0; i < chunk.size(); i++) {
+            PreparedCoaQuery query = chunk.get(i);
+            if (i > 0) sql.append(", ");
+            sql.append('(').append(stripTerminator(query.sql())).append(") AS c").append(i + 1);
+            args.addAll(Arrays.asList(query.args()));
+        }
+
+        return new FusedQuery(List.copyOf(chunk), sql.toString(), args.toArray());
+    }
+
+    private static String stripTerminator(String sql) {
+        String trimmed = sql.trim();
+        while (trimmed.endsWith(";")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1).trim();
+        }
+        return trimmed;
+    }
+
+    public record Plan(List<FusedQuery> fused, List<PreparedCoaQuery> singles) {
+    }
+
+    /**
+     * One round trip returning a single row; column {@code c(i+1)} holds the value of {@code members.get(i)}.
+     */
+    public record FusedQuery(List<PreparedCoaQuery> members, String sql, Object[] args) {
+    }
+}
@@ -0,0 +1,78 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CoaFormulaTest {
+
+    private static final Map<String, BigDecimal> VALUES = Map.of(
+            "4000", new BigDecimal("1000"),
+            "5000", new BigDecimal("250"),
+            "6000", BigDecimal.ZERO);
+
+    @Test
+    void honoursPrecedenceParenthesesAndUnaryMinus() {
+        assertThat(evaluate("[4000] - [5000] * 2")).isEqualByComparingTo("500");
+        assertThat(evaluate("([4000] - [5000]) * 2")).isEqualByComparingTo("1500");
+        assertThat(evaluate("([4000] - [5000]) / [4000] * 100")).isEqualByComparingTo("75");
+        assertThat(evaluate("-[5000] + -(-2)")).isEqualByComparingTo("-248");
+        assertThat(evaluate("10 - 4 - 3")).isEqualByComparingTo("3");
+        assertThat(evaluate("+1.5 * [ 5000 ]")).isEqualByComparingTo("375");
+    }
+
+    @Test
+    void dividesWithDecimalPrecision() {
+        assertThat(evaluate("[4000] / 3")).isEqualByComparingTo("333.3333333333333333333333333333333");
+    }
+
+    @Test
+    void listsReferencesOnceInOrderOfFirstAppearance() {
+        CoaFormula formula = CoaFormula.parse("[5000] + [4000] - [5000] * [ 6000 ]");
+
+        assertThat(formula.references()).containsExactly("5000", "4000", "6000");
+    }
+
+    @Test
+    void rejectsDivisionByZeroWhenEvaluated() {
+        CoaFormula formula = CoaFormula.parse("[4000] / [6000]");
+
+        assertThatThrownBy(() -> formula.evaluate(VALUES::get))
+                .isInstanceOf(ArithmeticException.class)
+                .hasMessage("Division by zero");
+    }
+
+    @Test
+    void reportsWhereAFormulaIsInvalid() {
+        assertParseError(null, "Formula is empty");
+        assertParseError("   ", "Formula is empty");
+        assertParseError("[4000] +", "Formula ends unexpectedly");
+        assertParseError("[4000] [5000]", "Unexpected '[' at position 8");
+        assertParseError("[4000", "Unclosed '[' at position 1");
+        assertParseError("1 + [ ]", "Empty COA reference at position 5");
+        assertParseError("([4000] - 1", "Expected ')' at position 12");
+        assertParseError("[4000] % 2", "Unexpected '%' at position 8");
+        assertParseError("1..2", "Invalid number '1..2'");
+        assertParseError("SUM([4000])", "Unexpected 'S' at position 1");
+    }
+
+    @Test
+    void invalidFormulasAreIllegalArguments() {
+        assertThatThrownBy(() -> CoaFormula.parse("*")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static BigDecimal evaluate(String text) {
+        return CoaFormula.parse(text).evaluate(VALUES::get);
+    }
+
+    private static void assertParseError(String text, String message) {
+        assertThatThrownBy(() -> CoaFormula.parse(text))
+                .as(text)
+                .isInstanceOf(CoaFormulaException.class)
+                .hasMessage(message);
+    }
+}
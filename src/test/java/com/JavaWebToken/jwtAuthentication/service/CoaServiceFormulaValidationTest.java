@@ -0,0 +1,126 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import com.JavaWebToken.jwtAuthentication.entity.Coa;
+import com.JavaWebToken.jwtAuthentication.repository.CoaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CoaServiceFormulaValidationTest {
+
+    private CoaRepository coaRepository;
+    private CoaService coaService;
+
+    @BeforeEach
+    void setUp() {
+        coaRepository = mock(CoaRepository.class);
+        coaService = new CoaService(coaRepository, mock(CoaVersionService.class), new CoaSqlCompiler(),
+                mock(CacheManager.class));
+        when(coaRepository.save(any(Coa.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void rejectsAFormulaClosingACycleThroughStoredFormulas() {
+        Coa a = coa(1L, "A", "[B] + 1");
+        Coa b = coa(2L, "B", "[C] * 2");
+        Coa c = coa(3L, "C", null);
+        when(coaRepository.findByArchivedFalse()).thenReturn(List.of(a, b, c));
+        when(coaRepository.findById(3L)).thenReturn(Optional.of(c));
+
+        assertThatThrownBy(() -> coaService.updateCoa(3L, coa(3L, "C", "[A] - 1")))
+                .isInstanceOf(CoaFormulaException.class)
+                .hasMessage("Circular reference: C -> A -> B -> C");
+        verify(coaRepository, never()).save(any(Coa.class));
+    }
+
+    @Test
+    void rejectsAFormulaReferencingItself() {
+        when(coaRepository.findByArchivedFalse()).thenReturn(List.of());
+
+        assertThatThrownBy(() -> coaService.createCoa(coa(null, "SELF", "[SELF] + 1")))
+                .isInstanceOf(CoaFormulaException.class)
+                .hasMessage("Circular reference: SELF -> SELF");
+    }
+
+    @Test
+    void rejectsUnknownAndArchivedReferences() {
+        // Archived COAs are not among the active ones, so 5000 is unknown whether it never existed or was archived
+        when(coaRepository.findByArchivedFalse()).thenReturn(List.of(coa(1L, "4000", null)));
+
+        assertThatThrownBy(() -> coaService.createCoa(coa(null, "NET", "[4000] - [5000]")))
+                .isInstanceOf(CoaFormulaException.class)
+                .hasMessage("Unknown COA referenced: [5000]");
+    }
+
+    @Test
+    void rejectsFormulasThatDoNotParse() {
+        assertThatThrownBy(() -> coaService.createCoa(coa(null, "NET", "[4000] -")))
+                .isInstanceOf(CoaFormulaException.class)
+                .hasMessage("Formula ends unexpectedly");
+    }
+
+    @Test
+    void acceptsSharedReferencesThatAreNotACycle() {
+        Coa revenue = coa(1L, "4000", null);
+        Coa costs = coa(2L, "5000", null);
+        Coa gross = coa(3L, "GROSS", "[4000] - [5000]");
+        // A stored formula that no longer parses cannot take part in a cycle
+        Coa legacy = coa(4L, "LEGACY", "[GROSS] +");
+        when(coaRepository.findByArchivedFalse()).thenReturn(List.of(revenue, costs, gross, legacy));
+
+        assertThatCode(() -> coaService.createCoa(coa(null, "PCT", "[GROSS] / [4000] * 100 + [GROSS]")))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void rejectsRenamingArchivingOrDeletingACoaThatFormulasReference() {
+        Coa revenue = coa(1L, "4000", null);
+        Coa gross = coa(2L, "GROSS", "[4000] - [5000]");
+        Coa margin = coa(3L, "MARGIN", "[4000] * 2");
+        when(coaRepository.findByArchivedFalse()).thenReturn(List.of(revenue, gross, margin));
+        when(coaRepository.findById(1L)).thenReturn(Optional.of(revenue));
+
+        assertThatThrownBy(() -> coaService.updateCoa(1L, coa(1L, "4001", null)))
+                .isInstanceOf(CoaFormulaException.class)
+                .hasMessage("[4000] cannot be renamed while referenced by: GROSS, MARGIN");
+        assertThatThrownBy(() -> coaService.archiveCoa(1L, "tester"))
+                .isInstanceOf(CoaFormulaException.class)
+                .hasMessage("[4000] cannot be archived while referenced by: GROSS, MARGIN");
+        assertThatThrownBy(() -> coaService.hardDeleteCoa(1L))
+                .isInstanceOf(CoaFormulaException.class)
+                .hasMessage("[4000] cannot be deleted while referenced by: GROSS, MARGIN");
+        verify(coaRepository, never()).save(any(Coa.class));
+        verify(coaRepository, never()).delete(any(Coa.class));
+    }
+
+    @Test
+    void allowsArchivingACoaNoFormulaReferences() {
+        Coa costs = coa(1L, "5000", null);
+        Coa margin = coa(2L, "MARGIN", "[4000] * 2");
+        when(coaRepository.findByArchivedFalse()).thenReturn(List.of(costs, margin));
+        when(coaRepository.findById(1L)).thenReturn(Optional.of(costs));
+
+        assertThatCode(() -> coaService.archiveCoa(1L, "tester")).doesNotThrowAnyException();
+    }
+
+    private static Coa coa(Long id, String code, String formula) {
+        return Coa.builder()
+                .coaId(id)
+                .coaCode(code)
+                .coaName(code)
+                .sqlScript(formula == null ? "SELECT SUM(amount) FROM ledger WHERE account = '" + code + "'" : "")
+                .formula(formula)
+                .build();
+    }
+}
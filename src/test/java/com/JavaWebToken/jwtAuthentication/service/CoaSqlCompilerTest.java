@@ -0,0 +1,145 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import com.JavaWebToken.jwtAuthentication.dto.CellMappingDTO;
+import com.JavaWebToken.jwtAuthentication.entity.CoaScriptDescriptor;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CoaSqlCompilerTest {
+
+    private final CoaSqlCompiler compiler = new CoaSqlCompiler();
+
+    @Test
+    void replacesEveryPlaceholderSyntaxWithABindMarker() {
+        CompiledCoaSql compiled = compiler.compile(
+                "SELECT SUM(amount) FROM ledger WHERE d >= ${startDate} AND d <= :endDate AND fiscal_year = @year",
+                null, null);
+
+        assertThat(compiled.sql()).isEqualTo("SELECT SUM(amount) FROM ledger WHERE d >= ? AND d <= ? AND fiscal_year = ?");
+        assertThat(compiled.parameters()).containsExactly(
+                CoaSqlParameter.START_DATE, CoaSqlParameter.END_DATE, CoaSqlParameter.YEAR);
+    }
+
+    @Test
+    void leavesPlaceholdersInsideQuotedLiteralsAlone() {
+        CompiledCoaSql compiled = compiler.compile(
+                "SELECT COUNT(*) FROM ledger WHERE memo = ':startDate' AND note = 'it''s @endDate'"
+                        + " AND ref = \"${year}\" AND path = 'C:\\\\:endDate\\' :year' AND d BETWEEN :startDate AND :endDate",
+                null, null);
+
+        assertThat(compiled.sql()).isEqualTo(
+                "SELECT COUNT(*) FROM ledger WHERE memo = ':startDate' AND note = 'it''s @endDate'"
+                        + " AND ref = \"${year}\" AND path = 'C:\\\\:endDate\\' :year' AND d BETWEEN ? AND ?");
+        assertThat(compiled.parameters()).containsExactly(CoaSqlParameter.START_DATE, CoaSqlParameter.END_DATE);
+    }
+
+    @Test
+    void leavesPlaceholdersInsideCommentsAlone() {
+        CompiledCoaSql compiled = compiler.compile(
+                "-- period :startDate to :endDate\nSELECT SUM(amount) /* @year */ FROM ledger WHERE d <= :endDate",
+                null, null);
+
+        assertThat(compiled.sql()).isEqualTo(
+                "-- period :startDate to :endDate\nSELECT SUM(amount) /* @year */ FROM ledger WHERE d <= ?");
+        assertThat(compiled.parameters()).containsExactly(CoaSqlParameter.END_DATE);
+    }
+
+    @Test
+    void keepsUnknownNamesSessionVariablesAndCasts() {
+        String script = "SELECT @@session.time_zone, amount::numeric FROM ledger WHERE account = :accountCode";
+
+        CompiledCoaSql compiled = compiler.compile(script, null, null);
+
+        assertThat(compiled.sql()).isEqualTo(script);
+        assertThat(compiled.parameters()).isEmpty();
+    }
+
+    @Test
+    void rawMarkersMeanStartThenEndDate() {
+        CompiledCoaSql compiled = compiler.compile("SELECT SUM(amount) FROM ledger WHERE d BETWEEN ? AND ?", null, null);
+
+        assertThat(compiled.parameters()).containsExactly(CoaSqlParameter.START_DATE, CoaSqlParameter.END_DATE);
+        assertThat(compiled.descriptor().getPositional()).isTrue();
+        assertThat(compiled.descriptor().getResultType()).isEqualTo(CoaScriptDescriptor.ResultType.DECIMAL);
+    }
+
+    @Test
+    void rejectsMoreThanTwoRawMarkers() {
+        assertThatThrownBy(() -> compiler.compile("SELECT SUM(amount) FROM ledger WHERE d BETWEEN ? AND ? AND y = ?", null, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("at most two parameters");
+    }
+
+    @Test
+    void bindsPeriodValuesInPlaceholderOrder() {
+        CompiledCoaSql compiled = compiler.compile(
+                "SELECT SUM(amount) FROM ledger WHERE fiscal_year = :year AND d <= :endDate AND d >= :startDate AND d <> :endDate",
+                null, null);
+
+        Object[] args = compiled.bind(LocalDate.of(2024, 4, 1), LocalDate.of(2024, 6, 30));
+
+        assertThat(args).containsExactly(2024, Date.valueOf("2024-06-30"), Date.valueOf("2024-04-01"),
+                Date.valueOf("2024-06-30"));
+    }
+
+    @Test
+    void describesScalarAggregates() {
+        CoaScriptDescriptor descriptor = compiler.describe("SELECT SUM(amount) FROM ledger WHERE d BETWEEN :startDate AND :endDate;");
+
+        assertThat(descriptor.getAggregateKind()).isEqualTo(CoaScriptDescriptor.AggregateKind.SUM);
+        assertThat(descriptor.getResultType()).isEqualTo(CoaScriptDescriptor.ResultType.NUMBER);
+        assertThat(descriptor.getPlaceholders()).isEqualTo("startDate,endDate");
+        assertThat(descriptor.getParameterCount()).isEqualTo(2);
+        assertThat(descriptor.getScalar()).isTrue();
+    }
+
+    @Test
+    void describesGroupedAndPlainScriptsAsNotScalar() {
+        assertThat(compiler.describe("SELECT account, SUM(amount) FROM ledger GROUP BY account").getScalar()).isFalse();
+        assertThat(compiler.describe("SELECT SUM(amount) FROM a UNION SELECT SUM(amount) FROM b").getScalar()).isFalse();
+        assertThat(compiler.describe("SELECT SUM(amount) FROM a; DELETE FROM a").getScalar()).isFalse();
+
+        CoaScriptDescriptor plain = compiler.describe("SELECT name FROM accounts WHERE id = 1");
+        assertThat(plain.getAggregateKind()).isEqualTo(CoaScriptDescriptor.AggregateKind.NONE);
+        assertThat(plain.getResultType()).isEqualTo(CoaScriptDescriptor.ResultType.OBJECT);
+        assertThat(plain.getScalar()).isFalse();
+    }
+
+    @Test
+    void describesUncompilableScriptsWithoutFailing() {
+        CoaScriptDescriptor descriptor = compiler.describe("SELECT SUM(x) FROM t WHERE a = ? AND b = ? AND c = ?");
+
+        assertThat(descriptor.getAggregateKind()).isEqualTo(CoaScriptDescriptor.AggregateKind.NONE);
+        assertThat(descriptor.getScalar()).isFalse();
+    }
+
+    @Test
+    void reusesCompiledSqlUntilTheCoaVersionOrScriptChanges() {
+        CellMappingDTO mapping = mapping(7L, 1, "SELECT SUM(amount) FROM ledger WHERE d <= :endDate");
+
+        CompiledCoaSql first = compiler.compile(mapping);
+        assertThat(compiler.compile(mapping)).isSameAs(first);
+
+        mapping.setCoaVersion(2);
+        CompiledCoaSql second = compiler.compile(mapping);
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.coaVersion()).isEqualTo(2);
+
+        // An edit that bypassed versioning is still picked up
+        mapping.setSqlScript("SELECT SUM(amount) FROM ledger WHERE d >= :startDate");
+        assertThat(compiler.compile(mapping).parameters()).containsExactly(CoaSqlParameter.START_DATE);
+    }
+
+    private static CellMappingDTO mapping(Long coaId, Integer version, String script) {
+        CellMappingDTO mapping = new CellMappingDTO();
+        mapping.setCoaId(coaId);
+        mapping.setCoaVersion(version);
+        mapping.setSqlScript(script);
+        return mapping;
+    }
+}
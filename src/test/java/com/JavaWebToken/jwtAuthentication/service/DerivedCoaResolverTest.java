@@ -0,0 +1,169 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import com.JavaWebToken.jwtAuthentication.dto.CellMappingDTO;
+import com.JavaWebToken.jwtAuthentication.repository.ReportJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class DerivedCoaResolverTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    private static final LocalDate END = LocalDate.of(2024, 3, 31);
+
+    private ReportJdbcRepository repository;
+    private DerivedCoaResolver resolver;
+    private CoaResultMemo memo;
+    private Map<String, CompletableFuture<Object>> known;
+    private List<CellMappingDTO> pulledIn;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ReportJdbcRepository.class);
+        resolver = new DerivedCoaResolver(repository);
+        memo = new CoaResultMemo();
+        known = new HashMap<>();
+        pulledIn = new ArrayList<>();
+    }
+
+    @Test
+    void findsEveryCodeOnACycleButNotCodesThatOnlyReachOne() {
+        Map<String, CoaFormula> formulas = new LinkedHashMap<>();
+        formulas.put("D", CoaFormula.parse("[A] * 2"));
+        formulas.put("A", CoaFormula.parse("[B] + 1"));
+        formulas.put("B", CoaFormula.parse("[C] + [X]"));
+        formulas.put("C", CoaFormula.parse("[A]"));
+        formulas.put("E", CoaFormula.parse("[E] + 1"));
+        formulas.put("F", CoaFormula.parse("[X] - [Y]"));
+
+        assertThat(DerivedCoaResolver.findCycles(formulas)).containsExactlyInAnyOrder("A", "B", "C", "E");
+    }
+
+    @Test
+    void evaluatesFormulasOverValuesAlreadyInTheRun() {
+        known.put("4000", CompletableFuture.completedFuture(new BigDecimal("1000")));
+        known.put("5000", CompletableFuture.completedFuture(250L));
+        CompletableFuture<Object> margin = new CompletableFuture<>();
+
+        resolve(List.of(slot("MARGIN", "[4000] - [5000]", margin)));
+
+        assertThat(margin.join()).isEqualTo(new BigDecimal("750"));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void chainsDerivedCoasAndWaitsForPendingInputs() {
+        CompletableFuture<Object> revenue = new CompletableFuture<>();
+        known.put("4000", revenue);
+        CompletableFuture<Object> gross = new CompletableFuture<>();
+        CompletableFuture<Object> pct = new CompletableFuture<>();
+
+        resolve(List.of(slot("PCT", "[GROSS] / [4000] * 100", pct), slot("GROSS", "[4000] - 100", gross)));
+        assertThat(pct).isNotDone();
+
+        revenue.complete(new BigDecimal("400"));
+        assertThat(gross.join()).isEqualTo(new BigDecimal("300"));
+        assertThat((BigDecimal) pct.join()).isEqualByComparingTo("75");
+    }
+
+    @Test
+    void failsEveryCoaOnACycleWithoutWaitingForIt() {
+        CompletableFuture<Object> a = new CompletableFuture<>();
+        CompletableFuture<Object> b = new CompletableFuture<>();
+        CompletableFuture<Object> c = new CompletableFuture<>();
+
+        resolve(List.of(slot("A", "[B] + 1", a), slot("B", "[A] * 2", b), slot("C", "[A] + 1", c)));
+
+        assertThat(a.join()).isEqualTo("ERROR: Circular reference in formula of [A]");
+        assertThat(b.join()).isEqualTo("ERROR: Circular reference in formula of [B]");
+        assertThat(c.join()).isEqualTo("ERROR: [A] failed");
+    }
+
+    @Test
+    void propagatesFailedTimedOutAndNonNumericInputs() {
+        known.put("BROKEN", CompletableFuture.completedFuture("ERROR: syntax error"));
+        known.put("SLOW", CompletableFuture.completedFuture(ReportDeadline.TIMEOUT));
+        known.put("TEXT", CompletableFuture.completedFuture("n/a"));
+        known.put("THROWN", CompletableFuture.failedFuture(new IllegalStateException("boom")));
+        known.put("EMPTY", CompletableFuture.completedFuture(null));
+        CompletableFuture<Object> broken = new CompletableFuture<>();
+        CompletableFuture<Object> slow = new CompletableFuture<>();
+        CompletableFuture<Object> text = new CompletableFuture<>();
+        CompletableFuture<Object> thrown = new CompletableFuture<>();
+        CompletableFuture<Object> empty = new CompletableFuture<>();
+        CompletableFuture<Object> zero = new CompletableFuture<>();
+
+        resolve(List.of(slot("R1", "[BROKEN] + 1", broken), slot("R2", "[SLOW] + 1", slow),
+                slot("R3", "[TEXT] + 1", text), slot("R4", "[THROWN] + 1", thrown),
+                slot("R5", "[EMPTY] + 1", empty), slot("R6", "1 / [EMPTY]", zero)));
+
+        assertThat(broken.join()).isEqualTo("ERROR: [BROKEN] failed");
+        assertThat(slow.join()).isEqualTo(ReportDeadline.TIMEOUT);
+        assertThat(text.join()).isEqualTo("ERROR: [TEXT] is not numeric");
+        assertThat(thrown.join()).isEqualTo("ERROR: [THROWN] failed");
+        assertThat(empty.join()).isEqualTo(BigDecimal.ONE);
+        assertThat(zero.join()).isEqualTo("ERROR: Division by zero");
+    }
+
+    @Test
+    void reportsInvalidFormulasOnTheirOwnCell() {
+        CompletableFuture<Object> invalid = new CompletableFuture<>();
+
+        resolve(List.of(slot("BAD", "[4000] +", invalid)));
+
+        assertThat(invalid.join()).isEqualTo("ERROR: Invalid formula - Formula ends unexpectedly");
+    }
+
+    @Test
+    void pullsInReferencedCoasLevelByLevelAndFlagsUnknownOnes() {
+        CellMappingDTO nested = definition("NET", null, "[4000] - [5000]");
+        CellMappingDTO revenue = definition("4000", 1L, null);
+        CellMappingDTO costs = definition("5000", 2L, null);
+        when(repository.getCoaDefinitionsByCodes(any()))
+                .thenReturn(List.of(nested))
+                .thenReturn(List.of(revenue, costs));
+        CompletableFuture<Object> total = new CompletableFuture<>();
+        CompletableFuture<Object> missing = new CompletableFuture<>();
+
+        resolve(List.of(slot("TOTAL", "[NET] * 2", total), slot("MISSING", "[NOPE] + 1", missing)));
+
+        assertThat(pulledIn).containsExactly(revenue, costs);
+        assertThat(missing.join()).isEqualTo("ERROR: [NOPE] failed");
+        assertThat(known.get("NOPE").join()).isEqualTo("ERROR: Unknown COA [NOPE]");
+
+        known.get("4000").complete(new BigDecimal("10"));
+        known.get("5000").complete(new BigDecimal("4"));
+        assertThat(total.join()).isEqualTo(new BigDecimal("12"));
+    }
+
+    private void resolve(List<DerivedCoaResolver.DerivedSlot> derived) {
+        resolver.resolve(derived, known, START, END, memo, (definition, slot) -> pulledIn.add(definition));
+    }
+
+    private static DerivedCoaResolver.DerivedSlot slot(String code, String formula, CompletableFuture<Object> value) {
+        return new DerivedCoaResolver.DerivedSlot(definition(code, null, formula), value);
+    }
+
+    private static CellMappingDTO definition(String code, Long coaId, String formula) {
+        CellMappingDTO mapping = new CellMappingDTO();
+        mapping.setCoaCode(code);
+        mapping.setCoaId(coaId != null ? coaId : (long) code.hashCode());
+        mapping.setFormula(formula);
+        mapping.setSqlScript(formula == null ? "SELECT 1" : "");
+        return mapping;
+    }
+}
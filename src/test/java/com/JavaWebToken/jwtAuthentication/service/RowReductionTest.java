@@ -0,0 +1,83 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import com.JavaWebToken.jwtAuthentication.entity.CoaRowReducer;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RowReductionTest {
+
+    @Test
+    void emptyResultsReduceToNullOrZero() {
+        assertThat(new RowReduction(CoaRowReducer.SUM).result()).isNull();
+        assertThat(new RowReduction(CoaRowReducer.COUNT).result()).isEqualTo(0L);
+        assertThat(new RowReduction(CoaRowReducer.FIRST).result()).isNull();
+        assertThat(new RowReduction(CoaRowReducer.LAST).result()).isNull();
+        assertThat(new RowReduction(CoaRowReducer.FIRST).isComplete()).isFalse();
+    }
+
+    @Test
+    void sumOfOnlyNullValuesStaysNull() throws SQLException {
+        RowReduction reduction = reduce(CoaRowReducer.SUM, null, null);
+
+        assertThat(reduction.result()).isNull();
+        assertThat(reduction.rowCount()).isEqualTo(2);
+    }
+
+    @Test
+    void sumSkipsNullsAndAddsMixedNumericTypesExactly() throws SQLException {
+        RowReduction reduction = reduce(CoaRowReducer.SUM,
+                new BigDecimal("0.10"), null, 2, 0.2d, 3L, "-1.05");
+
+        assertThat(reduction.result()).isEqualTo(new BigDecimal("4.25"));
+    }
+
+    @Test
+    void countIncludesRowsWithNullValues() throws SQLException {
+        assertThat(reduce(CoaRowReducer.COUNT, null, 5, null).result()).isEqualTo(3L);
+    }
+
+    @Test
+    void firstKeepsTheFirstValueEvenWhenItIsNull() throws SQLException {
+        RowReduction reduction = reduce(CoaRowReducer.FIRST, null, "second");
+
+        assertThat(reduction.result()).isNull();
+        assertThat(reduction.isComplete()).isTrue();
+    }
+
+    @Test
+    void firstIsCompleteAfterOneRow() throws SQLException {
+        RowReduction reduction = new RowReduction(CoaRowReducer.FIRST);
+        reduction.accept(row("first"));
+
+        assertThat(reduction.isComplete()).isTrue();
+        assertThat(reduction.result()).isEqualTo("first");
+    }
+
+    @Test
+    void lastKeepsTheLastValueEvenWhenItIsNull() throws SQLException {
+        assertThat(reduce(CoaRowReducer.LAST, 1, 2).result()).isEqualTo(2);
+        assertThat(reduce(CoaRowReducer.LAST, 1, null).result()).isNull();
+        assertThat(reduce(CoaRowReducer.LAST, 1, 2).isComplete()).isFalse();
+    }
+
+    private static RowReduction reduce(CoaRowReducer reducer, Object... values) throws SQLException {
+        RowReduction reduction = new RowReduction(reducer);
+        for (Object value : values) {
+            reduction.accept(row(value));
+        }
+        return reduction;
+    }
+
+    private static ResultSet row(Object value) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getObject(1)).thenReturn(value);
+        return rs;
+    }
+}
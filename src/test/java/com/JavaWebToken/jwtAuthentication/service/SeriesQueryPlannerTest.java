@@ -0,0 +1,114 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import com.JavaWebToken.jwtAuthentication.dto.ReportPeriodDTO;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SeriesQueryPlannerTest {
+
+    private final CoaSqlCompiler compiler = new CoaSqlCompiler();
+    private final SeriesQueryPlanner planner = new SeriesQueryPlanner();
+
+    private final List<ReportPeriodDTO> quarters = List.of(
+            period("2024-04-01", "2024-06-30"),
+            period("2024-01-01", "2024-03-31"),
+            period("2024-07-01", "2024-09-30"));
+
+    @Test
+    void bucketsEachPeriodIntoAConditionalAggregateOverOneWidenedScan() {
+        SeriesQueryPlanner.SeriesQuery series = plan(
+                "SELECT SUM(l.amount) FROM ledger l WHERE l.account = '4000' AND l.posting_date BETWEEN :startDate AND :endDate;");
+
+        assertThat(series.bucketed()).isTrue();
+        assertThat(series.sql()).isEqualTo("SELECT "
+                + "SUM(CASE WHEN l.posting_date BETWEEN ? AND ? THEN l.amount END) AS c1, "
+                + "SUM(CASE WHEN l.posting_date BETWEEN ? AND ? THEN l.amount END) AS c2, "
+                + "SUM(CASE WHEN l.posting_date BETWEEN ? AND ? THEN l.amount END) AS c3 "
+                + "FROM ledger l WHERE l.account = '4000' AND l.posting_date BETWEEN ? AND ?");
+        // Periods in request order, then the outer range from the earliest start to the latest end
+        assertThat(series.args()).containsExactly(
+                date("2024-04-01"), date("2024-06-30"),
+                date("2024-01-01"), date("2024-03-31"),
+                date("2024-07-01"), date("2024-09-30"),
+                date("2024-01-01"), date("2024-09-30"));
+    }
+
+    @Test
+    void bucketsCountStarAsCountOfOneAndDropsTheScriptsOwnAlias() {
+        SeriesQueryPlanner.SeriesQuery series = plan(
+                "SELECT COUNT(*) AS postings FROM ledger WHERE posting_date BETWEEN ? AND ?");
+
+        assertThat(series.bucketed()).isTrue();
+        assertThat(series.sql()).startsWith("SELECT COUNT(CASE WHEN posting_date BETWEEN ? AND ? THEN 1 END) AS c1, ")
+                .endsWith("AS c3 FROM ledger WHERE posting_date BETWEEN ? AND ?")
+                .doesNotContain("postings");
+    }
+
+    @Test
+    void keepsExpressionsAndNestedCallsInsideTheBucket() {
+        SeriesQueryPlanner.SeriesQuery series = plan(
+                "SELECT SUM(COALESCE(debit, 0) - COALESCE(credit, 0)) FROM ledger WHERE posting_date BETWEEN :startDate AND :endDate");
+
+        assertThat(series.bucketed()).isTrue();
+        assertThat(series.sql()).startsWith(
+                "SELECT SUM(CASE WHEN posting_date BETWEEN ? AND ? THEN COALESCE(debit, 0) - COALESCE(credit, 0) END) AS c1");
+    }
+
+    @Test
+    void fusesPerPeriodSubqueriesWhenTheScriptCannotBeBucketed() {
+        List<String> scripts = List.of(
+                "SELECT COUNT(DISTINCT account) FROM ledger WHERE posting_date BETWEEN :startDate AND :endDate",
+                "SELECT SUM(amount) FROM ledger WHERE account = '4000' OR posting_date BETWEEN :startDate AND :endDate",
+                "SELECT SUM(amount) FROM ledger WHERE posting_date BETWEEN :startDate AND :endDate"
+                        + " AND value_date BETWEEN :startDate AND :endDate",
+                "SELECT SUM(amount) FROM ledger WHERE amount > (SELECT AVG(amount) FROM ledger)"
+                        + " AND posting_date BETWEEN :startDate AND :endDate",
+                "SELECT SUM(amount) FROM ledger WHERE posting_date BETWEEN :endDate AND :startDate",
+                "SELECT SUM(amount) FROM ledger WHERE fiscal_year = :year");
+
+        for (String script : scripts) {
+            SeriesQueryPlanner.SeriesQuery series = plan(script);
+            assertThat(series.bucketed()).as(script).isFalse();
+            String compiled = compiler.compile(script, null, null).sql();
+            assertThat(series.sql()).as(script)
+                    .isEqualTo("SELECT (" + compiled + ") AS c1, (" + compiled + ") AS c2, (" + compiled + ") AS c3");
+        }
+    }
+
+    @Test
+    void fusedArgumentsAreEachPeriodsOwnBinding() {
+        SeriesQueryPlanner.SeriesQuery series = plan(
+                "SELECT SUM(amount) FROM ledger WHERE fiscal_year = :year AND posting_date <= :endDate");
+
+        assertThat(series.args()).containsExactly(
+                2024, date("2024-06-30"),
+                2024, date("2024-03-31"),
+                2024, date("2024-09-30"));
+    }
+
+    @Test
+    void leavesNonScalarScriptsToRunPerPeriod() {
+        assertThat(plan("SELECT account, SUM(amount) FROM ledger WHERE posting_date BETWEEN ? AND ? GROUP BY account")).isNull();
+        assertThat(plan("SELECT name FROM accounts WHERE opened BETWEEN ? AND ?")).isNull();
+    }
+
+    private SeriesQueryPlanner.SeriesQuery plan(String script) {
+        return planner.plan(compiler.compile(script, null, null), quarters);
+    }
+
+    private static ReportPeriodDTO period(String start, String end) {
+        ReportPeriodDTO period = new ReportPeriodDTO();
+        period.setStartDate(LocalDate.parse(start));
+        period.setEndDate(LocalDate.parse(end));
+        return period;
+    }
+
+    private static Date date(String value) {
+        return Date.valueOf(value);
+    }
+}
@@ -0,0 +1,119 @@
+package com.JavaWebToken.jwtAuthentication.service;
+
+import com.JavaWebToken.jwtAuthentication.dto.CellMappingDTO;
+import com.JavaWebToken.jwtAuthentication.entity.CoaRowReducer;
+import com.JavaWebToken.jwtAuthentication.entity.CoaScriptDescriptor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SheetQueryPlannerTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    private static final LocalDate END = LocalDate.of(2024, 3, 31);
+
+    private SheetQueryPlanner planner;
+
+    @BeforeEach
+    void setUp() {
+        planner = new SheetQueryPlanner();
+        ReflectionTestUtils.setField(planner, "batchSize", 100);
+    }
+
+    @Test
+    void fusesScalarAggregatesWithOneAliasPerMemberInOrder() {
+        PreparedCoaQuery first = scalar("SELECT SUM(amount) FROM ledger WHERE d BETWEEN ? AND ?;", "a1", "a2");
+        PreparedCoaQuery second = scalar("SELECT COUNT(*) FROM ledger WHERE account = 'x;y' AND d <= ?", "b1");
+
+        SheetQueryPlanner.Plan plan = planner.plan(List.of(first, second));
+
+        assertThat(plan.singles()).isEmpty();
+        assertThat(plan.fused()).hasSize(1);
+        SheetQueryPlanner.FusedQuery fused = plan.fused().get(0);
+        assertThat(fused.sql()).isEqualTo("SELECT (SELECT SUM(amount) FROM ledger WHERE d BETWEEN ? AND ?) AS c1, "
+                + "(SELECT COUNT(*) FROM ledger WHERE account = 'x;y' AND d <= ?) AS c2");
+        assertThat(fused.members()).containsExactly(first, second);
+        assertThat(fused.args()).containsExactly("a1", "a2", "b1");
+    }
+
+    @Test
+    void stripsEveryTrailingTerminator() {
+        PreparedCoaQuery first = scalar("SELECT MAX(amount) FROM ledger ; ; ");
+        PreparedCoaQuery second = scalar("SELECT MIN(amount) FROM ledger");
+
+        SheetQueryPlanner.FusedQuery fused = planner.plan(List.of(first, second)).fused().get(0);
+
+        assertThat(fused.sql()).isEqualTo("SELECT (SELECT MAX(amount) FROM ledger) AS c1, (SELECT MIN(amount) FROM ledger) AS c2");
+    }
+
+    @Test
+    void splitsIntoBatchesAndRunsALeftoverMemberOnItsOwn() {
+        ReflectionTestUtils.setField(planner, "batchSize", 2);
+        List<PreparedCoaQuery> queries = List.of(scalar("SELECT SUM(a) FROM t"), scalar("SELECT SUM(b) FROM t"),
+                scalar("SELECT SUM(c) FROM t"), scalar("SELECT SUM(d) FROM t"), scalar("SELECT SUM(e) FROM t"));
+
+        SheetQueryPlanner.Plan plan = planner.plan(queries);
+
+        assertThat(plan.fused()).hasSize(2);
+        assertThat(plan.fused().get(0).members()).containsExactly(queries.get(0), queries.get(1));
+        assertThat(plan.fused().get(1).members()).containsExactly(queries.get(2), queries.get(3));
+        // Aliases restart in every batch, so column c(i+1) always maps to members.get(i)
+        assertThat(plan.fused().get(1).sql()).isEqualTo("SELECT (SELECT SUM(c) FROM t) AS c1, (SELECT SUM(d) FROM t) AS c2");
+        assertThat(plan.singles()).containsExactly(queries.get(4));
+    }
+
+    @Test
+    void keepsNonScalarAndRowReducedScriptsOutOfFusedStatements() {
+        PreparedCoaQuery scalar = scalar("SELECT SUM(a) FROM t");
+        PreparedCoaQuery other = scalar("SELECT SUM(b) FROM t");
+        PreparedCoaQuery grouped = query("SELECT account, SUM(a) FROM t GROUP BY account",
+                descriptor(CoaScriptDescriptor.AggregateKind.SUM, false), null);
+        PreparedCoaQuery plain = query("SELECT name FROM t", descriptor(CoaScriptDescriptor.AggregateKind.NONE, false), null);
+        PreparedCoaQuery reduced = query("SELECT SUM(a) FROM t", descriptor(CoaScriptDescriptor.AggregateKind.SUM, true),
+                CoaRowReducer.SUM);
+
+        SheetQueryPlanner.Plan plan = planner.plan(List.of(scalar, grouped, plain, reduced, other));
+
+        assertThat(plan.fused()).hasSize(1);
+        assertThat(plan.fused().get(0).members()).containsExactly(scalar, other);
+        assertThat(plan.singles()).containsExactly(grouped, plain, reduced);
+    }
+
+    @Test
+    void batchSizeOfOneDisablesFusion() {
+        ReflectionTestUtils.setField(planner, "batchSize", 1);
+        List<PreparedCoaQuery> queries = List.of(scalar("SELECT SUM(a) FROM t"), scalar("SELECT SUM(b) FROM t"));
+
+        SheetQueryPlanner.Plan plan = planner.plan(queries);
+
+        assertThat(plan.fused()).isEmpty();
+        assertThat(plan.singles()).containsExactlyElementsOf(queries);
+    }
+
+    private static PreparedCoaQuery scalar(String sql, Object... args) {
+        return query(sql, descriptor(CoaScriptDescriptor.AggregateKind.SUM, true), null, args);
+    }
+
+    private static PreparedCoaQuery query(String sql, CoaScriptDescriptor descriptor, CoaRowReducer reducer, Object... args) {
+        CellMappingDTO mapping = new CellMappingDTO();
+        mapping.setSqlScript(sql);
+        mapping.setRowReducer(reducer);
+        return new PreparedCoaQuery(mapping, sql, args, descriptor, START, END);
+    }
+
+    private static CoaScriptDescriptor descriptor(CoaScriptDescriptor.AggregateKind kind, boolean scalar) {
+        return CoaScriptDescriptor.builder()
+                .aggregateKind(kind)
+                .resultType(CoaScriptDescriptor.ResultType.NUMBER)
+                .placeholders("")
+                .parameterCount(0)
+                .positional(false)
+                .scalar(scalar)
+                .build();
+    }
+}